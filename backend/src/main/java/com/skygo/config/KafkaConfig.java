@@ -0,0 +1,28 @@
+package com.skygo.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaConfig {
+
+    public static final String ORDER_CREATED_TOPIC = "order.created";
+    public static final String ORDER_ACCEPTED_TOPIC = "order.accepted";
+    // Every later status change, keyed by order id (published by the outbox relay)
+    public static final String ORDER_STATUS_TOPIC = "order.status";
+
+    @Value("${matching.kafka.partitions:12}")
+    private int orderCreatedPartitions;
+
+    // Orders are keyed by pickup grid cell, so every partition owns a set of city zones
+    @Bean
+    public NewTopic orderCreatedTopic() {
+        return TopicBuilder.name(ORDER_CREATED_TOPIC)
+                .partitions(orderCreatedPartitions)
+                .replicas(1)
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.skygo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Driver search settings (matching.search.*).
+ * Rings are searched smallest first; the search stops at the first ring that
+ * yields enough eligible candidates.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "matching.search")
+public class MatchingProperties {
+
+    // Ring radii in KM used when the service type has no dedicated entry
+    private List<Double> defaultRingsKm = List.of(1.0, 2.0, 3.0, 5.0);
+
+    // Ring radii in KM per service type (ServiceEntity.code), e.g. MOTOR, CAR
+    private Map<String, List<Double>> ringsKm = new HashMap<>();
+
+    // GEOSEARCH COUNT per ring
+    private int countPerRing = 20;
+
+    // GEOSEARCH ANY: stop scanning as soon as COUNT members are found
+    private boolean any = true;
+
+    // Stop expanding once this many eligible drivers are found
+    private int minCandidates = 3;
+
+    public List<Double> ringsFor(String serviceType) {
+        if (serviceType != null) {
+            for (Map.Entry<String, List<Double>> entry : ringsKm.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(serviceType)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return defaultRingsKm;
+    }
+}
@@ -0,0 +1,75 @@
+package com.skygo.config;
+
+import com.skygo.repository.DriverRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Authenticates STOMP sessions once, on CONNECT.
+ *
+ * A driver app sends its login JWT as the "Authorization: Bearer ..." native
+ * header; the driver id is stored in the session attributes so per-message
+ * handlers (e.g. /app/location) never decode the token again. Connections
+ * without a valid driver token still work for subscriptions.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    public static final String DRIVER_ID_ATTR = "driverId";
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+
+        String header = accessor.getFirstNativeHeader("Authorization");
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (header == null || !header.startsWith("Bearer ") || attributes == null) {
+            return message;
+        }
+
+        try {
+            Jwt jwt = jwtDecoder.decode(header.substring(7));
+            if (!"DRIVER".equals(jwt.getClaimAsString("role"))) {
+                return message;
+            }
+            Long driverId = resolveDriverId(jwt);
+            if (driverId != null) {
+                attributes.put(DRIVER_ID_ATTR, driverId);
+            }
+        } catch (JwtException e) {
+            System.out.println("[StompAuthInterceptor] Ignoring invalid token on CONNECT: " + e.getMessage());
+        }
+        return message;
+    }
+
+    // Tokens issued before the driverId claim existed only carry the email
+    private Long resolveDriverId(Jwt jwt) {
+        Object claim = jwt.getClaims().get(DRIVER_ID_ATTR);
+        if (claim instanceof Number number) {
+            return number.longValue();
+        }
+        return driverRepository.findByEmail(jwt.getSubject())
+                .map(driver -> driver.getId())
+                .orElse(null);
+    }
+}
@@ -1,7 +1,9 @@
 package com.skygo.controller;
 
 import com.skygo.model.*;
+import com.skygo.model.dto.AdminOrderRow;
 import com.skygo.model.dto.ApiResponse;
+import com.skygo.model.dto.FleetDriverView;
 import com.skygo.repository.*;
 import com.skygo.service.MinioService;
 import com.skygo.service.TrackingService;
@@ -185,9 +187,9 @@ public class AdminController {
 
     // ===================== ALL ORDERS (Admin view) =====================
     @GetMapping("/orders")
-    public ResponseEntity<ApiResponse<Page<Order>>> getOrders(
+    public ResponseEntity<ApiResponse<Page<AdminOrderRow>>> getOrders(
             @PageableDefault(size = 10, sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(ApiResponse.success("Orders fetched", orderRepository.findAll(pageable)));
+        return ResponseEntity.ok(ApiResponse.success("Orders fetched", orderRepository.findAdminRows(pageable)));
     }
 
     // ===================== ALL DISCOUNTS (Admin view) =====================
@@ -224,34 +226,25 @@ public class AdminController {
 
     // ===================== ONLINE DRIVERS (for monitoring) =====================
     @GetMapping("/online-drivers")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getOnlineDriversWithLocation() {
-        List<Driver> onlineDrivers = driverRepository.findAllByAvailability(DriverAvailability.ONLINE);
-        List<Driver> onTripDrivers = driverRepository.findAllByAvailability(DriverAvailability.ON_TRIP);
-
-        List<Map<String, Object>> result = new ArrayList<>();
-
-        // Combine online + on_trip drivers
-        List<Driver> allActive = new ArrayList<>(onlineDrivers);
-        allActive.addAll(onTripDrivers);
-
-        for (Driver driver : allActive) {
-            Map<String, Double> location = trackingService.getDriverLocation(driver.getId());
-            Map<String, Object> driverData = new HashMap<>();
-            driverData.put("id", driver.getId());
-            driverData.put("name", driver.getName());
-            driverData.put("phone", driver.getPhone());
-            driverData.put("vehicleType", driver.getVehicleType());
-            driverData.put("vehiclePlate", driver.getVehiclePlate());
-            driverData.put("availability", driver.getAvailability().name());
-            driverData.put("rating", driver.getRating());
-            if (location != null) {
-                driverData.put("lat", location.get("lat"));
-                driverData.put("lng", location.get("lng"));
+    public ResponseEntity<ApiResponse<List<FleetDriverView>>> getOnlineDriversWithLocation() {
+        // Online + on_trip drivers: one projection query, one GEOPOS for all of them
+        List<FleetDriverView> drivers = driverRepository.findFleetViewByAvailabilityIn(
+                List.of(DriverAvailability.ONLINE, DriverAvailability.ON_TRIP));
+
+        List<Long> ids = new ArrayList<>(drivers.size());
+        for (FleetDriverView driver : drivers) {
+            ids.add(driver.getId());
+        }
+        Map<Long, org.springframework.data.geo.Point> positions = trackingService.getDriverPositions(ids);
+        for (FleetDriverView driver : drivers) {
+            org.springframework.data.geo.Point point = positions.get(driver.getId());
+            if (point != null) {
+                driver.setLat(point.getY());
+                driver.setLng(point.getX());
             }
-            result.add(driverData);
         }
 
-        return ResponseEntity.ok(ApiResponse.success("Online drivers", result));
+        return ResponseEntity.ok(ApiResponse.success("Online drivers", drivers));
     }
 
     // ===================== DASHBOARD STATS =====================
@@ -270,8 +263,15 @@ public class AdminController {
         stats.put("totalPaymentMethods", paymentMethodRepository.count());
 
         // Online / on-trip driver counts
-        long onlineDrivers = driverRepository.findAllByAvailability(DriverAvailability.ONLINE).size();
-        long onTripDrivers = driverRepository.findAllByAvailability(DriverAvailability.ON_TRIP).size();
+        long onlineDrivers = 0;
+        long onTripDrivers = 0;
+        for (Object[] row : driverRepository.countGroupByAvailability()) {
+            if (row[0] == DriverAvailability.ONLINE) {
+                onlineDrivers = (Long) row[1];
+            } else if (row[0] == DriverAvailability.ON_TRIP) {
+                onTripDrivers = (Long) row[1];
+            }
+        }
         stats.put("onlineDrivers", onlineDrivers);
         stats.put("onTripDrivers", onTripDrivers);
 
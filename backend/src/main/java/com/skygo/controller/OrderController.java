@@ -3,14 +3,24 @@ package com.skygo.controller;
 import com.skygo.model.Order;
 import com.skygo.model.OrderStatus;
 import com.skygo.model.dto.ApiResponse;
+import com.skygo.model.dto.OrderSummary;
+import com.skygo.model.dto.OrderView;
 import com.skygo.service.OrderService;
+import com.skygo.service.TripTrailService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -19,6 +29,9 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private TripTrailService tripTrailService;
+
     @PostMapping("/create")
     public ResponseEntity<ApiResponse<Order>> createOrder(@RequestBody com.skygo.model.dto.CreateOrderRequest request,
             @org.springframework.security.core.annotation.AuthenticationPrincipal org.springframework.security.oauth2.jwt.Jwt jwt) {
@@ -36,7 +49,7 @@ public class OrderController {
     }
 
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<Page<Order>>> getAvailableOrders(
+    public ResponseEntity<ApiResponse<Page<OrderSummary>>> getAvailableOrders(
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         return ResponseEntity.ok(ApiResponse.success("Available orders retrieved",
                 orderService.getAvailableOrders(pageable)));
@@ -45,6 +58,7 @@ public class OrderController {
     @PostMapping("/{id}/reject")
     public ResponseEntity<ApiResponse<String>> rejectOrder(@PathVariable Long id,
             @RequestParam Long driverId) {
+        orderService.rejectOrder(id, driverId);
         return ResponseEntity.ok(ApiResponse.success("Order rejected", "Order Rejected"));
     }
 
@@ -67,7 +81,7 @@ public class OrderController {
     }
 
     @GetMapping("/history")
-    public ResponseEntity<ApiResponse<Page<Order>>> getOrderHistory(
+    public ResponseEntity<ApiResponse<Page<OrderSummary>>> getOrderHistory(
             @RequestParam Long userId, @RequestParam String role,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         return ResponseEntity.ok(ApiResponse.success("Order history retrieved",
@@ -75,11 +89,26 @@ public class OrderController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Order>> getOrderDetails(@PathVariable Long id) {
-        Order order = orderService.getOrderDetails(id);
+    public ResponseEntity<ApiResponse<OrderView>> getOrderDetails(@PathVariable Long id) {
+        OrderView order = orderService.getOrderView(id);
         return ResponseEntity.ok(ApiResponse.success("Order details retrieved", order));
     }
 
+    /**
+     * Replay a trip's GPS trail as newline-delimited JSON, oldest point first:
+     * {"lat":..,"lng":..,"ts":..} per line. Streamed segment by segment.
+     */
+    @GetMapping(value = "/{id}/trail", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getTrail(@PathVariable Long id) {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            tripTrailService.read(id, (lat, lng, ts) -> writer.write(
+                    "{\"lat\":" + lat + ",\"lng\":" + lng + ",\"ts\":" + ts + "}\n"));
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
     @PostMapping("/{id}/rate")
     public ResponseEntity<ApiResponse<Order>> rateOrder(@PathVariable Long id,
             @RequestBody com.skygo.model.dto.RateOrderRequest request) {
@@ -1,12 +1,30 @@
 package com.skygo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skygo.config.StompAuthInterceptor;
 import com.skygo.model.dto.ApiResponse;
+import com.skygo.model.dto.DriverLocation;
+import com.skygo.model.dto.FleetDelta;
+import com.skygo.model.dto.LocationPoint;
+import com.skygo.service.DriverPresenceService;
 import com.skygo.service.DriverService;
+import com.skygo.service.FleetChangeLog;
+import com.skygo.service.FleetSnapshotService;
 import com.skygo.service.TrackingService;
+import com.skygo.tracking.LocationFrameCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -20,26 +38,102 @@ public class TrackingController {
     @Autowired
     private DriverService driverService;
 
-    @PostMapping("/update")
-    public ResponseEntity<ApiResponse<String>> updatePosition(
-            @RequestBody Map<String, Object> payload) {
-        Long driverId = Long.valueOf(payload.get("driverId").toString());
-        double lat = Double.parseDouble(payload.get("lat").toString());
-        double lng = Double.parseDouble(payload.get("lng").toString());
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FleetSnapshotService fleetSnapshotService;
+
+    @Autowired
+    private FleetChangeLog fleetChangeLog;
 
-        trackingService.updateDriverLocation(driverId, lat, lng);
+    @Autowired
+    private DriverPresenceService driverPresenceService;
+
+    @PostMapping("/update")
+    public ResponseEntity<ApiResponse<String>> updatePosition(@RequestBody LocationPoint point) {
+        trackingService.ingest(point);
         return ResponseEntity.ok(ApiResponse.success("Location updated", "Location updated"));
     }
 
+    /**
+     * STOMP endpoint: driver app sends { lat, lng, timestamp, heading, speed } to
+     * /app/location over its existing /ws-ojek connection. The driver is taken
+     * from the session (authenticated on CONNECT), never from the payload.
+     * With content-type application/octet-stream the body is one or more
+     * LocationFrameCodec frames instead of JSON.
+     */
+    @MessageMapping("/location")
+    public void ingestLocation(@Payload byte[] payload, SimpMessageHeaderAccessor headers) throws IOException {
+        Map<String, Object> attributes = headers.getSessionAttributes();
+        Object driverId = attributes != null ? attributes.get(StompAuthInterceptor.DRIVER_ID_ATTR) : null;
+        if (driverId == null) {
+            return;
+        }
+
+        MimeType contentType = headers.getContentType();
+        if (contentType != null && MimeTypeUtils.APPLICATION_OCTET_STREAM.equalsTypeAndSubtype(contentType)) {
+            List<LocationPoint> points = LocationFrameCodec.decode(payload);
+            for (LocationPoint point : points) {
+                point.setDriverId((Long) driverId);
+            }
+            trackingService.ingest(points);
+            return;
+        }
+
+        LocationPoint point = objectMapper.readValue(payload, LocationPoint.class);
+        point.setDriverId((Long) driverId);
+        trackingService.ingest(point);
+    }
+
+    /**
+     * STOMP keep-alive for a driver that has no new position to send (parked,
+     * no GPS fix). Keeps the driver from being evicted as silent.
+     */
+    @MessageMapping("/heartbeat")
+    public void heartbeat(SimpMessageHeaderAccessor headers) {
+        Map<String, Object> attributes = headers.getSessionAttributes();
+        Object driverId = attributes != null ? attributes.get(StompAuthInterceptor.DRIVER_ID_ATTR) : null;
+        if (driverId != null) {
+            driverPresenceService.heartbeat((Long) driverId);
+        }
+    }
+
+    /**
+     * Batch of location points, possibly from several drivers (e.g. a gateway).
+     * Returns the number of points accepted; stale and invalid points are dropped.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<Integer>> updatePositions(@RequestBody List<LocationPoint> points) {
+        int accepted = trackingService.ingest(points);
+        return ResponseEntity.ok(ApiResponse.success("Locations updated", accepted));
+    }
+
+    /**
+     * Same as /batch with a LocationFrameCodec body (application/octet-stream).
+     */
+    @PostMapping(value = "/batch", consumes = LocationFrameCodec.CONTENT_TYPE)
+    public ResponseEntity<ApiResponse<Integer>> updatePositionsBinary(@RequestBody byte[] body) {
+        int accepted = trackingService.ingest(LocationFrameCodec.decode(body));
+        return ResponseEntity.ok(ApiResponse.success("Locations updated", accepted));
+    }
+
     @PostMapping("/driver/{id}/online")
     public ResponseEntity<ApiResponse<String>> goOnline(@PathVariable Long id) {
         driverService.setDriverAvailability(id, true);
         return ResponseEntity.ok(ApiResponse.success("Driver is ONLINE", "Driver is ONLINE"));
     }
 
+    @PostMapping("/driver/{id}/heartbeat")
+    public ResponseEntity<ApiResponse<String>> heartbeat(@PathVariable Long id) {
+        driverPresenceService.heartbeat(id);
+        return ResponseEntity.ok(ApiResponse.success("Heartbeat received", "Heartbeat received"));
+    }
+
     @PostMapping("/driver/{id}/offline")
     public ResponseEntity<ApiResponse<String>> goOffline(@PathVariable Long id) {
         driverService.setDriverAvailability(id, false);
+        trackingService.removeDriverFromGeo(id);
         return ResponseEntity.ok(ApiResponse.success("Driver is OFFLINE", "Driver is OFFLINE"));
     }
 
@@ -55,11 +149,56 @@ public class TrackingController {
 
     /**
      * Get all online driver locations from Redis Geo.
-     * Returns list of { driverId, lat, lng } objects.
+     * Returns list of { driverId, lat, lng } objects, served from the shared
+     * fleet snapshot (at most tracking.snapshot.max-age-ms old). Supports
+     * If-None-Match.
      */
     @GetMapping("/online-drivers")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAllOnlineDriverLocations() {
-        List<Map<String, Object>> locations = trackingService.getAllOnlineDriverLocations();
-        return ResponseEntity.ok(ApiResponse.success("Online driver locations", locations));
+    public ResponseEntity<byte[]> getAllOnlineDriverLocations(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FleetSnapshotService.FleetSnapshot snapshot = fleetSnapshotService.current();
+        if (snapshot.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.json());
+    }
+
+    /**
+     * Fleet changes after a version. Without since (or when since is too old,
+     * or epoch is not the one of the node answering) the full fleet state is
+     * returned with full=true. Poll again with since=version&epoch=epoch, or
+     * follow /topic/fleet/changes.
+     */
+    @GetMapping("/fleet/changes")
+    public ResponseEntity<ApiResponse<FleetDelta>> getFleetChanges(@RequestParam(required = false) Long since,
+            @RequestParam(required = false) String epoch) {
+        return ResponseEntity.ok(ApiResponse.success("Fleet changes", fleetChangeLog.since(since, epoch)));
+    }
+
+    /**
+     * Drivers within radiusKm of a point, closest first.
+     */
+    @GetMapping("/drivers/nearby")
+    public ResponseEntity<ApiResponse<List<DriverLocation>>> getDriversNearby(
+            @RequestParam double lat, @RequestParam double lng,
+            @RequestParam(defaultValue = "3") double radiusKm,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success("Nearby drivers",
+                trackingService.findDriversInRadius(lat, lng, radiusKm, limit)));
+    }
+
+    /**
+     * Drivers inside a map viewport.
+     */
+    @GetMapping("/drivers/in-box")
+    public ResponseEntity<ApiResponse<List<DriverLocation>>> getDriversInBox(
+            @RequestParam double minLat, @RequestParam double minLng,
+            @RequestParam double maxLat, @RequestParam double maxLng,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(ApiResponse.success("Drivers in view",
+                trackingService.findDriversInBox(minLat, minLng, maxLat, maxLng, limit)));
     }
 }
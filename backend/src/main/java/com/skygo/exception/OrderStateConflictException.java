@@ -0,0 +1,12 @@
+package com.skygo.exception;
+
+/**
+ * An order transition lost against the order's current status, e.g. a second
+ * driver accepting an order that was just taken. Answered with 409.
+ */
+public class OrderStateConflictException extends RuntimeException {
+
+    public OrderStateConflictException(String message) {
+        super(message);
+    }
+}
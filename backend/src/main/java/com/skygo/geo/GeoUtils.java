@@ -0,0 +1,52 @@
+package com.skygo.geo;
+
+/**
+ * Small geo helpers shared by pricing, matching and tracking.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371;
+
+    private GeoUtils() {
+    }
+
+    // Haversine Formula for distance
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Id of the square grid cell (cellSizeDeg x cellSizeDeg) containing a point,
+     * row and column packed into one long.
+     */
+    public static long gridCell(double lat, double lng, double cellSizeDeg) {
+        long row = (long) Math.floor((lat + 90) / cellSizeDeg);
+        long col = (long) Math.floor((lng + 180) / cellSizeDeg);
+        return (row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Web-mercator (slippy map) tile column of a longitude at zoom z.
+     */
+    public static int tileX(double lng, int zoom) {
+        int n = 1 << zoom;
+        int x = (int) Math.floor((lng + 180) / 360 * n);
+        return Math.min(Math.max(x, 0), n - 1);
+    }
+
+    /**
+     * Web-mercator (slippy map) tile row of a latitude at zoom z.
+     */
+    public static int tileY(double lat, int zoom) {
+        int n = 1 << zoom;
+        double latRad = Math.toRadians(lat);
+        int y = (int) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n);
+        return Math.min(Math.max(y, 0), n - 1);
+    }
+}
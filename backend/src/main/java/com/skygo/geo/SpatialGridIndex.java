@@ -0,0 +1,186 @@
+package com.skygo.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory uniform-grid spatial index of points keyed by a long id.
+ *
+ * Cells are cellSizeDeg x cellSizeDeg; each cell holds the ids inside it. Updates
+ * are lock-free (ConcurrentHashMap per cell), so ingest threads never contend on
+ * a global lock. Radius and k-nearest queries only visit the cells around the
+ * query point. Every point carries the time of its last update so stale points
+ * can be dropped (removeOlderThan).
+ */
+public class SpatialGridIndex {
+
+    private static final double KM_PER_DEG_LAT = 111.32;
+
+    private final double cellSizeDeg;
+
+    private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public SpatialGridIndex(double cellSizeDeg) {
+        this.cellSizeDeg = cellSizeDeg;
+    }
+
+    public record Position(long id, double lat, double lng, long cell, long updatedMs) {
+    }
+
+    public record Hit(long id, double lat, double lng, double distanceKm) {
+    }
+
+    public void update(long id, double lat, double lng) {
+        update(id, lat, lng, System.currentTimeMillis());
+    }
+
+    public void update(long id, double lat, double lng, long updatedMs) {
+        long cell = GeoUtils.gridCell(lat, lng, cellSizeDeg);
+        Position previous = positions.put(id, new Position(id, lat, lng, cell, updatedMs));
+        if (previous == null || previous.cell() != cell) {
+            cells.compute(cell, (k, ids) -> {
+                Set<Long> members = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                members.add(id);
+                return members;
+            });
+            if (previous != null) {
+                removeFromCell(previous.cell(), id);
+            }
+        }
+    }
+
+    public void remove(long id) {
+        Position previous = positions.remove(id);
+        if (previous != null) {
+            removeFromCell(previous.cell(), id);
+        }
+    }
+
+    /**
+     * Drop every point last updated before cutoffMs; returns how many were dropped.
+     */
+    public int removeOlderThan(long cutoffMs) {
+        int removed = 0;
+        for (Position position : positions.values()) {
+            // Only drop the entry we looked at, not a fresher update racing with the sweep
+            if (position.updatedMs() < cutoffMs && positions.remove(position.id(), position)) {
+                removeFromCell(position.cell(), position.id());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public Position get(long id) {
+        return positions.get(id);
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Points within radiusKm of (lat, lng) accepted by the filter, closest first.
+     */
+    public List<Hit> withinRadius(double lat, double lng, double radiusKm, int limit, LongPredicate filter) {
+        int rings = ringsFor(lat, radiusKm);
+        List<Hit> hits = new ArrayList<>();
+        long row = rowOf(lat);
+        long col = colOf(lng);
+        for (long r = row - rings; r <= row + rings; r++) {
+            for (long c = col - rings; c <= col + rings; c++) {
+                collect(r, c, lat, lng, radiusKm, filter, hits);
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * The k closest points within maxRadiusKm accepted by the filter, closest first.
+     * Visits cells ring by ring and stops once the k-th hit is provably closer than
+     * anything in the next ring.
+     */
+    public List<Hit> nearest(double lat, double lng, int k, double maxRadiusKm, LongPredicate filter) {
+        int maxRings = ringsFor(lat, maxRadiusKm);
+        double ringWidthKm = cellWidthKm(lat);
+        long row = rowOf(lat);
+        long col = colOf(lng);
+        List<Hit> hits = new ArrayList<>();
+
+        for (int ring = 0; ring <= maxRings; ring++) {
+            if (ring == 0) {
+                collect(row, col, lat, lng, maxRadiusKm, filter, hits);
+            } else {
+                for (long c = col - ring; c <= col + ring; c++) {
+                    collect(row - ring, c, lat, lng, maxRadiusKm, filter, hits);
+                    collect(row + ring, c, lat, lng, maxRadiusKm, filter, hits);
+                }
+                for (long r = row - ring + 1; r <= row + ring - 1; r++) {
+                    collect(r, col - ring, lat, lng, maxRadiusKm, filter, hits);
+                    collect(r, col + ring, lat, lng, maxRadiusKm, filter, hits);
+                }
+            }
+
+            if (hits.size() >= k) {
+                hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+                // Anything in ring+1 is at least ring * cell width away
+                if (hits.get(k - 1).distanceKm() <= ring * ringWidthKm) {
+                    break;
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits.size() > k ? new ArrayList<>(hits.subList(0, k)) : hits;
+    }
+
+    private void collect(long row, long col, double lat, double lng, double radiusKm, LongPredicate filter,
+            List<Hit> hits) {
+        long cell = (row << 32) | (col & 0xFFFFFFFFL);
+        Set<Long> ids = cells.get(cell);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            Position p = positions.get(id);
+            // Skip ids caught mid-move between cells
+            if (p == null || p.cell() != cell) {
+                continue;
+            }
+            double distance = GeoUtils.haversineKm(lat, lng, p.lat(), p.lng());
+            if (distance <= radiusKm && (filter == null || filter.test(p.id()))) {
+                hits.add(new Hit(p.id(), p.lat(), p.lng(), distance));
+            }
+        }
+    }
+
+    private void removeFromCell(long cell, long id) {
+        cells.computeIfPresent(cell, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private long rowOf(double lat) {
+        return (long) Math.floor((lat + 90) / cellSizeDeg);
+    }
+
+    private long colOf(double lng) {
+        return (long) Math.floor((lng + 180) / cellSizeDeg);
+    }
+
+    // Narrowest side of a cell at this latitude (longitude degrees shrink with cos(lat))
+    private double cellWidthKm(double lat) {
+        return cellSizeDeg * KM_PER_DEG_LAT * Math.max(Math.cos(Math.toRadians(Math.abs(lat) + cellSizeDeg)), 0.01);
+    }
+
+    private int ringsFor(double lat, double radiusKm) {
+        return (int) Math.ceil(radiusKm / cellWidthKm(lat));
+    }
+}
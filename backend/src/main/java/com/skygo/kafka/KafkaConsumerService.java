@@ -1,24 +1,66 @@
 package com.skygo.kafka;
 
+import com.skygo.config.KafkaConfig;
 import com.skygo.model.Order;
-import com.skygo.service.MatchingService;
+import com.skygo.service.MatchingPipeline;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
 public class KafkaConsumerService {
 
+    private static final String ORDER_CREATED_LISTENER = "order-created-matcher";
+
+    @Autowired
+    private MatchingPipeline matchingPipeline;
+
     @Autowired
-    private MatchingService matchingService;
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    // Pause consumption when this many orders are being matched on this node...
+    @Value("${matching.kafka.high-watermark:200}")
+    private int highWatermark;
 
-    @KafkaListener(topics = "order.created", groupId = "skygo-group")
+    // ...and resume once the matching stage has drained below this
+    @Value("${matching.kafka.low-watermark:50}")
+    private int lowWatermark;
+
+    /**
+     * One listener container per partition slice (matching.kafka.concurrency);
+     * each matches the city zones hashed to its partitions.
+     */
+    @KafkaListener(id = ORDER_CREATED_LISTENER, topics = KafkaConfig.ORDER_CREATED_TOPIC, groupId = "skygo-group",
+            concurrency = "${matching.kafka.concurrency:4}")
     public void consumeOrderCreated(Order order) {
         System.out.println("Received Order Created Event: " + order.getId());
-        matchingService.findDrivers(order);
+        matchingPipeline.submit(order);
+
+        if (matchingPipeline.pendingCount() >= highWatermark) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(ORDER_CREATED_LISTENER);
+            if (container != null && !container.isPauseRequested()) {
+                System.out.println("[KafkaConsumerService] Matching queue above " + highWatermark
+                        + ", pausing order.created consumption");
+                container.pause();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${matching.kafka.resume-check-ms:200}")
+    public void resumeWhenDrained() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(ORDER_CREATED_LISTENER);
+        if (container != null && container.isPauseRequested()
+                && matchingPipeline.pendingCount() <= lowWatermark) {
+            System.out.println("[KafkaConsumerService] Matching queue drained, resuming order.created consumption");
+            container.resume();
+        }
     }
 
-    @KafkaListener(topics = "order.accepted", groupId = "skygo-group")
+    @KafkaListener(topics = KafkaConfig.ORDER_ACCEPTED_TOPIC, groupId = "skygo-group")
     public void consumeOrderAccepted(Order order) {
         System.out.println("Received Order Accepted Event: " + order.getId());
         // Handle post-acceptance logic if any (e.g. analytics, further notifications)
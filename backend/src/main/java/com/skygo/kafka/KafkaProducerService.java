@@ -1,6 +1,10 @@
 package com.skygo.kafka;
 
+import com.skygo.config.KafkaConfig;
+import com.skygo.geo.GeoUtils;
+import com.skygo.model.Order;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
@@ -10,11 +14,22 @@ public class KafkaProducerService {
     @Autowired
     private KafkaTemplate<String, Object> kafkaTemplate;
 
-    public void sendOrderCreated(Object order) {
-        kafkaTemplate.send("order.created", order);
+    @Value("${matching.kafka.cell-size-deg:0.1}")
+    private double cellSizeDeg;
+
+    /**
+     * Keyed by the pickup grid cell so all orders of one area land on the same
+     * partition (and the same matching worker).
+     */
+    public void sendOrderCreated(Order order) {
+        kafkaTemplate.send(KafkaConfig.ORDER_CREATED_TOPIC, areaKey(order), order);
     }
 
     public void sendOrderAccepted(Object order) {
-        kafkaTemplate.send("order.accepted", order);
+        kafkaTemplate.send(KafkaConfig.ORDER_ACCEPTED_TOPIC, order);
+    }
+
+    public String areaKey(Order order) {
+        return Long.toHexString(GeoUtils.gridCell(order.getPickupLat(), order.getPickupLng(), cellSizeDeg));
     }
 }
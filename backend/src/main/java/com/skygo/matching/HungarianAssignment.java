@@ -0,0 +1,131 @@
+package com.skygo.matching;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment (Hungarian algorithm with potentials, O(n^2 * m)).
+ *
+ * Rows are orders, columns are drivers. Pairs that must not be matched get
+ * FORBIDDEN; a row whose best column is FORBIDDEN is reported as unassigned.
+ */
+public final class HungarianAssignment {
+
+    public static final double FORBIDDEN = 1e9;
+
+    private HungarianAssignment() {
+    }
+
+    /**
+     * Returns, for every row, the assigned column or -1.
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        if (rows == 0) {
+            return new int[0];
+        }
+        int cols = cost[0].length;
+        if (cols == 0) {
+            int[] none = new int[rows];
+            Arrays.fill(none, -1);
+            return none;
+        }
+
+        int[] assignment;
+        if (rows <= cols) {
+            assignment = solveRectangular(cost, rows, cols);
+        } else {
+            // More orders than drivers: solve the transposed problem
+            double[][] transposed = new double[cols][rows];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    transposed[j][i] = cost[i][j];
+                }
+            }
+            int[] byColumn = solveRectangular(transposed, cols, rows);
+            assignment = new int[rows];
+            Arrays.fill(assignment, -1);
+            for (int j = 0; j < cols; j++) {
+                if (byColumn[j] >= 0) {
+                    assignment[byColumn[j]] = j;
+                }
+            }
+        }
+
+        for (int i = 0; i < rows; i++) {
+            if (assignment[i] >= 0 && cost[i][assignment[i]] >= FORBIDDEN) {
+                assignment[i] = -1;
+            }
+        }
+        return assignment;
+    }
+
+    public static double totalCost(double[][] cost, int[] assignment) {
+        double total = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                total += cost[i][assignment[i]];
+            }
+        }
+        return total;
+    }
+
+    // Requires n <= m. Arrays are 1-based; index 0 is the virtual start column.
+    private static int[] solveRectangular(double[][] cost, int n, int m) {
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                int j1 = 0;
+                double delta = Double.MAX_VALUE;
+                double[] row = cost[i0 - 1];
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        double cur = row[j - 1] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] assignment = new int[n];
+        Arrays.fill(assignment, -1);
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0) {
+                assignment[p[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+}
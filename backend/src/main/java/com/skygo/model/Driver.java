@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "drivers")
+@Table(name = "drivers", indexes = @Index(name = "idx_drivers_availability", columnList = "availability"))
 public class Driver {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
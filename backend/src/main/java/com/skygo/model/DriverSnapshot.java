@@ -0,0 +1,31 @@
+package com.skygo.model;
+
+import lombok.Value;
+
+/**
+ * Immutable, matching-relevant view of a driver.
+ * Kept in memory by DriverSnapshotCache so matching never has to hit the DB.
+ */
+@Value
+public class DriverSnapshot {
+    Long id;
+    String vehicleType; // MOTOR or CAR
+    String fcmToken;
+    DriverAvailability availability;
+    DriverStatus status;
+    Double rating;
+
+    public static DriverSnapshot of(Driver driver) {
+        return new DriverSnapshot(
+                driver.getId(),
+                driver.getVehicleType(),
+                driver.getFcmToken(),
+                driver.getAvailability(),
+                driver.getStatus(),
+                driver.getRating());
+    }
+
+    public boolean hasFcmToken() {
+        return fcmToken != null && !fcmToken.isEmpty();
+    }
+}
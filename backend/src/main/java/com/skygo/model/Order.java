@@ -34,6 +34,10 @@ public class Order {
     private double distanceKm;
     private double estimatedPrice;
 
+    // Metered while ONGOING, set on completion (null if no GPS was metered)
+    private Double actualDistanceKm;
+    private Double finalPrice;
+
     // CAR or MOTOR
     private String serviceType;
 
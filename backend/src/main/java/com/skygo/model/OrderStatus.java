@@ -1,10 +1,44 @@
 package com.skygo.model;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     REQUESTED,
     ACCEPTED,
     PICKUP,
     ONGOING,
     COMPLETED,
-    CANCELLED
+    CANCELLED;
+
+    // Allowed transitions; COMPLETED and CANCELLED are final
+    private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> PREVIOUS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        NEXT.put(REQUESTED, EnumSet.of(ACCEPTED, CANCELLED));
+        NEXT.put(ACCEPTED, EnumSet.of(PICKUP, ONGOING, CANCELLED));
+        NEXT.put(PICKUP, EnumSet.of(ONGOING, CANCELLED));
+        NEXT.put(ONGOING, EnumSet.of(COMPLETED, CANCELLED));
+        NEXT.put(COMPLETED, EnumSet.noneOf(OrderStatus.class));
+        NEXT.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+
+        for (OrderStatus status : values()) {
+            PREVIOUS.put(status, EnumSet.noneOf(OrderStatus.class));
+        }
+        NEXT.forEach((from, targets) -> targets.forEach(to -> PREVIOUS.get(to).add(from)));
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return NEXT.get(this).contains(next);
+    }
+
+    /**
+     * Statuses an order has to be in to move to target (empty if nothing can).
+     */
+    public static Set<OrderStatus> allowedFrom(OrderStatus target) {
+        return PREVIOUS.get(target);
+    }
 }
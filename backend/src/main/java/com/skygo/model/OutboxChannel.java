@@ -0,0 +1,7 @@
+package com.skygo.model;
+
+public enum OutboxChannel {
+    WEBSOCKET,
+    FCM,
+    KAFKA
+}
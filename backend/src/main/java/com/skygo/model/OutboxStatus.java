@@ -0,0 +1,7 @@
+package com.skygo.model;
+
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    FAILED // gave up after outbox.relay.max-attempts
+}
@@ -0,0 +1,27 @@
+package com.skygo.model.dto;
+
+import com.skygo.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of the admin order table: order columns only, no user or driver join.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminOrderRow {
+    private Long id;
+    private String serviceType;
+    private String pickupAddress;
+    private String destinationAddress;
+    private double distanceKm;
+    private double estimatedPrice;
+    private Double finalPrice;
+    private String paymentMethod;
+    private OrderStatus status;
+    private LocalDateTime createdAt;
+}
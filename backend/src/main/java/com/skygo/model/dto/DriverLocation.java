@@ -0,0 +1,14 @@
+package com.skygo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverLocation {
+    private Long driverId;
+    private double lat;
+    private double lng;
+}
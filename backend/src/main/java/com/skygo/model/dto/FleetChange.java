@@ -0,0 +1,35 @@
+package com.skygo.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.skygo.model.DriverAvailability;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of the fleet change log.
+ *
+ * MOVED carries lat/lng, ONLINE / OFFLINE / STATUS carry the new availability.
+ * Full snapshots list one STATE entry per driver with everything known.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetChange {
+
+    public enum Type {
+        STATE,
+        MOVED,
+        ONLINE,
+        OFFLINE,
+        STATUS
+    }
+
+    private long version;
+    private Type type;
+    private Long driverId;
+    private Double lat;
+    private Double lng;
+    private DriverAvailability availability;
+}
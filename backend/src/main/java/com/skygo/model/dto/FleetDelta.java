@@ -0,0 +1,30 @@
+package com.skygo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Answer to "what changed since version X".
+ *
+ * full=false: changes are the log entries after fromVersion, oldest first.
+ * full=true: the client was too far behind (or unknown); changes is the whole
+ * fleet as STATE entries and replaces whatever the client holds.
+ * Either way the client continues with since=version and the epoch.
+ *
+ * Versions only mean something to the node that issued them; epoch names that
+ * node's log (one per node start), and a since from another epoch gets the
+ * full state.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetDelta {
+    private String epoch;
+    private long fromVersion;
+    private long version;
+    private boolean full;
+    private List<FleetChange> changes;
+}
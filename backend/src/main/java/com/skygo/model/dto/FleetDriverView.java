@@ -0,0 +1,39 @@
+package com.skygo.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.skygo.model.DriverAvailability;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the admin fleet monitor: only the driver columns the map shows, plus
+ * the last known position (omitted when the driver has none).
+ */
+@Data
+@NoArgsConstructor
+public class FleetDriverView {
+    private Long id;
+    private String name;
+    private String phone;
+    private String vehicleType;
+    private String vehiclePlate;
+    private DriverAvailability availability;
+    private Double rating;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double lat;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double lng;
+
+    // Used by the JPQL constructor expression in DriverRepository
+    public FleetDriverView(Long id, String name, String phone, String vehicleType, String vehiclePlate,
+            DriverAvailability availability, Double rating) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.vehicleType = vehicleType;
+        this.vehiclePlate = vehiclePlate;
+        this.availability = availability;
+        this.rating = rating;
+    }
+}
@@ -0,0 +1,26 @@
+package com.skygo.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One driver position report. timestamp is epoch millis on the device; when
+ * missing the server receive time is used. heading (degrees) and speed (m/s)
+ * are optional.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationPoint {
+    private Long driverId;
+    private Double lat;
+    private Double lng;
+    private Long timestamp;
+    private Double heading;
+    private Double speed;
+
+    public LocationPoint(Long driverId, double lat, double lng) {
+        this(driverId, lat, lng, null, null, null);
+    }
+}
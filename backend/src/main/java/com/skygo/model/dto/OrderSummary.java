@@ -0,0 +1,72 @@
+package com.skygo.model.dto;
+
+import com.skygo.model.OrderStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of the order lists in the apps (history, available orders): the order
+ * columns those screens show plus the user / driver summary, in the same
+ * nested shape as OrderView. Filled by a JPQL constructor expression in
+ * OrderRepository, so no Order, User or Driver entity is loaded.
+ */
+@Data
+@NoArgsConstructor
+public class OrderSummary {
+    private Long id;
+    private OrderView.UserSummary user;
+    private OrderView.DriverSummary driver;
+
+    private String pickupAddress;
+    private double pickupLat;
+    private double pickupLng;
+
+    private String destinationAddress;
+    private double destinationLat;
+    private double destinationLng;
+
+    private double distanceKm;
+    private double estimatedPrice;
+    private Double finalPrice;
+
+    private String serviceType;
+    private String paymentMethod;
+    private OrderStatus status;
+
+    private Integer rating;
+    private String feedback;
+
+    private LocalDateTime createdAt;
+
+    // Used by the JPQL constructor expressions in OrderRepository; driver columns are null until accepted
+    public OrderSummary(Long id, Long userId, String userName, String userPhone, String userEmail,
+            Long driverId, String driverName, String driverPhone, String vehicleType, String vehiclePlate,
+            Double driverRating, String pickupAddress, double pickupLat, double pickupLng,
+            String destinationAddress, double destinationLat, double destinationLng, double distanceKm,
+            double estimatedPrice, Double finalPrice, String serviceType, String paymentMethod,
+            OrderStatus status, Integer rating, String feedback, LocalDateTime createdAt) {
+        this.id = id;
+        this.user = new OrderView.UserSummary(userId, userName, userPhone, userEmail);
+        if (driverId != null) {
+            this.driver = new OrderView.DriverSummary(driverId, driverName, driverPhone, vehicleType, vehiclePlate,
+                    driverRating);
+        }
+        this.pickupAddress = pickupAddress;
+        this.pickupLat = pickupLat;
+        this.pickupLng = pickupLng;
+        this.destinationAddress = destinationAddress;
+        this.destinationLat = destinationLat;
+        this.destinationLng = destinationLng;
+        this.distanceKm = distanceKm;
+        this.estimatedPrice = estimatedPrice;
+        this.finalPrice = finalPrice;
+        this.serviceType = serviceType;
+        this.paymentMethod = paymentMethod;
+        this.status = status;
+        this.rating = rating;
+        this.feedback = feedback;
+        this.createdAt = createdAt;
+    }
+}
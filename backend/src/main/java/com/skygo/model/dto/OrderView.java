@@ -0,0 +1,102 @@
+package com.skygo.model.dto;
+
+import com.skygo.model.Driver;
+import com.skygo.model.Order;
+import com.skygo.model.OrderStatus;
+import com.skygo.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order as the apps read it: the order columns plus the few user and driver
+ * fields they show, in the same nested user / driver shape as the entity JSON.
+ */
+@Data
+@NoArgsConstructor
+public class OrderView {
+    private Long id;
+    private UserSummary user;
+    private DriverSummary driver;
+
+    private String pickupAddress;
+    private double pickupLat;
+    private double pickupLng;
+
+    private String destinationAddress;
+    private double destinationLat;
+    private double destinationLng;
+
+    private double distanceKm;
+    private double estimatedPrice;
+    private Double actualDistanceKm;
+    private Double finalPrice;
+
+    private String serviceType;
+    private String paymentMethod;
+    private OrderStatus status;
+
+    private Integer rating;
+    private String feedback;
+    private String paymentProofUrl;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UserSummary {
+        private Long id;
+        private String name;
+        private String phone;
+        private String email;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DriverSummary {
+        private Long id;
+        private String name;
+        private String phone;
+        private String vehicleType;
+        private String vehiclePlate;
+        private Double rating;
+    }
+
+    public static OrderView of(Order order) {
+        OrderView view = new OrderView();
+        view.setId(order.getId());
+        User user = order.getUser();
+        if (user != null) {
+            view.setUser(new UserSummary(user.getId(), user.getName(), user.getPhone(), user.getEmail()));
+        }
+        Driver driver = order.getDriver();
+        if (driver != null) {
+            view.setDriver(new DriverSummary(driver.getId(), driver.getName(), driver.getPhone(),
+                    driver.getVehicleType(), driver.getVehiclePlate(), driver.getRating()));
+        }
+        view.setPickupAddress(order.getPickupAddress());
+        view.setPickupLat(order.getPickupLat());
+        view.setPickupLng(order.getPickupLng());
+        view.setDestinationAddress(order.getDestinationAddress());
+        view.setDestinationLat(order.getDestinationLat());
+        view.setDestinationLng(order.getDestinationLng());
+        view.setDistanceKm(order.getDistanceKm());
+        view.setEstimatedPrice(order.getEstimatedPrice());
+        view.setActualDistanceKm(order.getActualDistanceKm());
+        view.setFinalPrice(order.getFinalPrice());
+        view.setServiceType(order.getServiceType());
+        view.setPaymentMethod(order.getPaymentMethod());
+        view.setStatus(order.getStatus());
+        view.setRating(order.getRating());
+        view.setFeedback(order.getFeedback());
+        view.setPaymentProofUrl(order.getPaymentProofUrl());
+        view.setCreatedAt(order.getCreatedAt());
+        view.setUpdatedAt(order.getUpdatedAt());
+        return view;
+    }
+}
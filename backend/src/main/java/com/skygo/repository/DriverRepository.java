@@ -1,7 +1,11 @@
 package com.skygo.repository;
 
 import com.skygo.model.Driver;
+import com.skygo.model.dto.FleetDriverView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.Optional;
 
 public interface DriverRepository extends JpaRepository<Driver, Long> {
@@ -22,5 +26,28 @@ public interface DriverRepository extends JpaRepository<Driver, Long> {
 
     long countByAvailability(com.skygo.model.DriverAvailability availability);
 
+    @Query("select distinct d.vehicleType from Driver d where d.vehicleType is not null")
+    java.util.List<String> findDistinctVehicleTypes();
+
     java.util.List<Driver> findAllByAvailability(com.skygo.model.DriverAvailability availability);
+
+    // Admin fleet monitor: only the columns it shows, no entity hydration
+    @Query("select new com.skygo.model.dto.FleetDriverView(d.id, d.name, d.phone, d.vehicleType, d.vehiclePlate, "
+            + "d.availability, d.rating) from Driver d where d.availability in :availabilities")
+    java.util.List<FleetDriverView> findFleetViewByAvailabilityIn(
+            @Param("availabilities") java.util.Collection<com.skygo.model.DriverAvailability> availabilities);
+
+    @Query("select d.availability, count(d) from Driver d group by d.availability")
+    java.util.List<Object[]> countGroupByAvailability();
+
+    @Query("select d.id from Driver d where d.id in :ids and d.availability = :availability")
+    java.util.List<Long> findIdsByIdInAndAvailability(@Param("ids") java.util.Collection<Long> ids,
+            @Param("availability") com.skygo.model.DriverAvailability availability);
+
+    // Bulk availability flip; guarded on the current value so a concurrent change wins
+    @Modifying
+    @Query("update Driver d set d.availability = :to where d.id in :ids and d.availability = :from")
+    int updateAvailability(@Param("ids") java.util.Collection<Long> ids,
+            @Param("from") com.skygo.model.DriverAvailability from,
+            @Param("to") com.skygo.model.DriverAvailability to);
 }
@@ -1,11 +1,18 @@
 package com.skygo.repository;
 
+import com.skygo.model.Driver;
 import com.skygo.model.Order;
 import com.skygo.model.OrderStatus;
+import com.skygo.model.dto.AdminOrderRow;
+import com.skygo.model.dto.OrderSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -15,13 +22,68 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     List<Order> findByStatusOrderByCreatedAtDesc(OrderStatus status);
 
-    // Paginated versions
-    Page<Order> findByStatus(OrderStatus status, Pageable pageable);
+    // REQUESTED orders waiting for matching (recovery sweep)
+    List<Order> findByStatusAndCreatedAtBetween(OrderStatus status, LocalDateTime start, LocalDateTime end);
 
-    Page<Order> findByUserId(Long userId, Pageable pageable);
+    // Trips in progress (active trip registry): driverId, orderId, status per row, no entities loaded
+    @Query("select o.driver.id, o.id, o.status from Order o where o.status in :statuses and o.driver is not null")
+    List<Object[]> findActiveTrips(@Param("statuses") List<OrderStatus> statuses);
 
-    Page<Order> findByDriverId(Long driverId, Pageable pageable);
+    // Paginated list screens: one select of the shown columns (plus the count), no entity hydration
+
+    String SUMMARY = "select new com.skygo.model.dto.OrderSummary(o.id, u.id, u.name, u.phone, u.email, "
+            + "d.id, d.name, d.phone, d.vehicleType, d.vehiclePlate, d.rating, o.pickupAddress, o.pickupLat, "
+            + "o.pickupLng, o.destinationAddress, o.destinationLat, o.destinationLng, o.distanceKm, "
+            + "o.estimatedPrice, o.finalPrice, o.serviceType, o.paymentMethod, o.status, o.rating, o.feedback, "
+            + "o.createdAt) from Order o join o.user u left join o.driver d ";
+
+    @Query(value = SUMMARY + "where o.status = :status",
+            countQuery = "select count(o) from Order o where o.status = :status")
+    Page<OrderSummary> findSummariesByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    @Query(value = SUMMARY + "where u.id = :userId",
+            countQuery = "select count(o) from Order o where o.user.id = :userId")
+    Page<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = SUMMARY + "where d.id = :driverId",
+            countQuery = "select count(o) from Order o where o.driver.id = :driverId")
+    Page<OrderSummary> findSummariesByDriverId(@Param("driverId") Long driverId, Pageable pageable);
+
+    @Query(value = "select new com.skygo.model.dto.AdminOrderRow(o.id, o.serviceType, o.pickupAddress, "
+            + "o.destinationAddress, o.distanceKm, o.estimatedPrice, o.finalPrice, o.paymentMethod, o.status, "
+            + "o.createdAt) from Order o",
+            countQuery = "select count(o) from Order o")
+    Page<AdminOrderRow> findAdminRows(Pageable pageable);
 
     // Count orders by date range (for dashboard charts)
     long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+
+    // Order read-model cache: cheap freshness check of a cached view
+    @Query("select o.updatedAt from Order o where o.id = :id")
+    LocalDateTime findUpdatedAtById(@Param("id") Long id);
+
+    // Why a conditional transition matched no row
+    @Query("select o.status from Order o where o.id = :id")
+    java.util.Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+    // Conditional state transitions: one UPDATE, 0 rows when the order is no longer in an allowed status
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = :to, o.updatedAt = :now where o.id = :id and o.status in :from")
+    int transition(@Param("id") Long id, @Param("from") Collection<OrderStatus> from,
+            @Param("to") OrderStatus to, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = com.skygo.model.OrderStatus.ACCEPTED, o.driver = :driver, "
+            + "o.updatedAt = :now where o.id = :id and o.status = com.skygo.model.OrderStatus.REQUESTED")
+    int accept(@Param("id") Long id, @Param("driver") Driver driver, @Param("now") LocalDateTime now);
+
+    // Fare falls back to the estimate when nothing was metered
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = com.skygo.model.OrderStatus.COMPLETED, "
+            + "o.actualDistanceKm = :actualDistanceKm, o.finalPrice = coalesce(:finalPrice, o.estimatedPrice), "
+            + "o.updatedAt = :now where o.id = :id and o.status in :from")
+    int complete(@Param("id") Long id, @Param("from") Collection<OrderStatus> from,
+            @Param("actualDistanceKm") Double actualDistanceKm, @Param("finalPrice") Double finalPrice,
+            @Param("now") LocalDateTime now);
 }
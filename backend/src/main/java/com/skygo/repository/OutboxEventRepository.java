@@ -0,0 +1,43 @@
+package com.skygo.repository;
+
+import com.skygo.model.OutboxEvent;
+import com.skygo.model.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Due events that are the oldest pending one of their order and channel, locked for this relay.
+    // SKIP LOCKED lets several nodes drain in parallel; the NOT EXISTS keeps a later event of an
+    // order waiting while an earlier one is pending (or being retried) anywhere.
+    @Query(value = "select * from outbox_events e where e.status = 'PENDING' and e.next_attempt_at <= :now "
+            + "and not exists (select 1 from outbox_events p where p.aggregate_id = e.aggregate_id "
+            + "and p.channel = e.channel and p.status = 'PENDING' and p.id < e.id) "
+            + "order by e.id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Lease claimed events: not due again until the relay has written their result (or died)
+    @Modifying
+    @Query("update OutboxEvent e set e.nextAttemptAt = :until where e.id in :ids")
+    int lease(@Param("ids") List<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = com.skygo.model.OutboxStatus.SENT, e.sentAt = :sentAt "
+            + "where e.id in :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :lastError where e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("status") OutboxStatus status, @Param("attempts") int attempts,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = :status and e.sentAt < :before")
+    int deleteByStatusAndSentAtBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
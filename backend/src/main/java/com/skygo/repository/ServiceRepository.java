@@ -2,6 +2,11 @@ package com.skygo.repository;
 
 import com.skygo.model.ServiceEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface ServiceRepository extends JpaRepository<ServiceEntity, Long> {
+    @Query("select s.code from ServiceEntity s where s.code is not null")
+    List<String> findAllCodes();
 }
@@ -0,0 +1,104 @@
+package com.skygo.service;
+
+import com.skygo.model.Order;
+import com.skygo.model.OrderStatus;
+import com.skygo.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * driverId -> trip in progress (ACCEPTED, PICKUP, ONGOING), so the location
+ * ingest path can attribute points to an order without a DB lookup.
+ *
+ * Updated by OrderService after each committed transition and reloaded from
+ * the DB periodically, which also picks up transitions made on other nodes.
+ * The reload reads three columns per trip and merges per driver: a driver
+ * whose trip was tracked here after the reload started keeps the local entry,
+ * and an order never goes back to an earlier status.
+ */
+@Service
+public class ActiveTripRegistry {
+
+    public static final List<OrderStatus> ACTIVE = List.of(OrderStatus.ACCEPTED, OrderStatus.PICKUP,
+            OrderStatus.ONGOING);
+
+    public record ActiveTrip(Long orderId, Long driverId, OrderStatus status) {
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final Map<Long, ActiveTrip> byDriver = new ConcurrentHashMap<>();
+
+    // driverId -> when track() last changed its entry; newer than any snapshot read before it
+    private final Map<Long, Long> trackedAt = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.trips.refresh-interval-ms:10000}")
+    public void reload() {
+        try {
+            long startedMs = System.currentTimeMillis();
+            Map<Long, ActiveTrip> fresh = new HashMap<>();
+            for (Object[] row : orderRepository.findActiveTrips(ACTIVE)) {
+                Long driverId = (Long) row[0];
+                fresh.put(driverId, new ActiveTrip((Long) row[1], driverId, (OrderStatus) row[2]));
+            }
+
+            Set<Long> drivers = new HashSet<>(fresh.keySet());
+            drivers.addAll(byDriver.keySet());
+            for (Long driverId : drivers) {
+                ActiveTrip snapshot = fresh.get(driverId);
+                byDriver.compute(driverId, (id, current) -> {
+                    Long tracked = trackedAt.get(id);
+                    if (tracked != null && tracked >= startedMs) {
+                        return current;
+                    }
+                    if (snapshot != null && current != null && current.orderId().equals(snapshot.orderId())
+                            && current.status().ordinal() > snapshot.status().ordinal()) {
+                        return current;
+                    }
+                    return snapshot;
+                });
+            }
+            trackedAt.values().removeIf(tracked -> tracked < startedMs);
+        } catch (Exception e) {
+            System.err.println("[ActiveTripRegistry] Reload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record an order's new status: active trips are (re)registered under their
+     * driver, anything else is dropped.
+     */
+    public void track(Order order) {
+        if (order.getDriver() == null) {
+            return;
+        }
+        Long driverId = order.getDriver().getId();
+        byDriver.compute(driverId, (id, trip) -> {
+            trackedAt.put(id, System.currentTimeMillis());
+            if (ACTIVE.contains(order.getStatus())) {
+                return new ActiveTrip(order.getId(), id, order.getStatus());
+            }
+            return trip != null && trip.orderId().equals(order.getId()) ? null : trip;
+        });
+    }
+
+    public ActiveTrip tripOf(Long driverId) {
+        return byDriver.get(driverId);
+    }
+}
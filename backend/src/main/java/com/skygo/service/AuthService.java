@@ -31,6 +31,9 @@ public class AuthService {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private DriverSnapshotCache driverSnapshotCache;
+
     public User registerUser(RegisterUserRequest request) {
         // Phone check removed as it is optional now
 
@@ -74,7 +77,9 @@ public class AuthService {
         driver.setKtpUrl(ktpUrl);
         driver.setSimUrl(simUrl);
 
-        return driverRepository.save(driver);
+        Driver saved = driverRepository.save(driver);
+        driverSnapshotCache.refresh(saved);
+        return saved;
     }
 
     public String generateOtp(String phone) {
@@ -114,7 +119,8 @@ public class AuthService {
         // 2. Try Email/Password for Driver
         Optional<Driver> driver = driverRepository.findByEmail(request.getEmail());
         if (driver.isPresent() && passwordEncoder.matches(request.getPassword(), driver.get().getPassword())) {
-            String token = jwtService.generateToken(driver.get().getEmail(), Map.of("role", "DRIVER"));
+            String token = jwtService.generateToken(driver.get().getEmail(),
+                    Map.of("role", "DRIVER", "driverId", driver.get().getId()));
             return Map.of(
                     "token", token,
                     "id", driver.get().getId(),
@@ -0,0 +1,180 @@
+package com.skygo.service;
+
+import com.skygo.geo.GeoUtils;
+import com.skygo.matching.HungarianAssignment;
+import com.skygo.model.Order;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional batch matching (matching.batch.enabled).
+ *
+ * Instead of greedily offering each order to its closest driver the moment it
+ * is created, REQUESTED orders are collected for a short window, grouped by
+ * area, and assigned together by minimising total pickup distance
+ * (Hungarian algorithm). Offers for the whole batch then go out in one pass,
+ * each order cascading through its remaining candidates as usual.
+ */
+@Service
+public class BatchMatchingService {
+
+    @Autowired
+    private MatchingService matchingService;
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${matching.batch.enabled:false}")
+    private boolean enabled;
+
+    // Orders whose pickups fall in the same cell are solved together
+    @Value("${matching.batch.area-size-deg:0.05}")
+    private double areaSizeDeg;
+
+    private final Map<Long, Order> pending = new ConcurrentHashMap<>();
+
+    private DistributionSummary batchSize;
+    private DistributionSummary pickupKm;
+
+    @PostConstruct
+    public void init() {
+        batchSize = DistributionSummary.builder("skygo.matching.batch.size")
+                .description("Orders assigned per batch window")
+                .register(meterRegistry);
+        pickupKm = DistributionSummary.builder("skygo.matching.batch.pickup.km")
+                .description("Total pickup distance of the assignments made per batch")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueue(Order order) {
+        pending.put(order.getId(), order);
+    }
+
+    public boolean isPending(Long orderId) {
+        return pending.containsKey(orderId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Order left REQUESTED before its batch was flushed.
+     */
+    public void discard(Long orderId) {
+        pending.remove(orderId);
+    }
+
+    @Scheduled(fixedDelayString = "${matching.batch.window-ms:2000}")
+    public void flush() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+
+        List<Order> batch = new ArrayList<>();
+        for (Long orderId : new ArrayList<>(pending.keySet())) {
+            Order order = pending.remove(orderId);
+            if (order != null) {
+                batch.add(order);
+            }
+        }
+
+        Map<Long, List<Order>> areas = new HashMap<>();
+        for (Order order : batch) {
+            long area = GeoUtils.gridCell(order.getPickupLat(), order.getPickupLng(), areaSizeDeg);
+            areas.computeIfAbsent(area, k -> new ArrayList<>()).add(order);
+        }
+
+        // Drivers assigned in one area are not offered again in the next one
+        Set<Long> taken = new HashSet<>();
+        for (List<Order> areaOrders : areas.values()) {
+            try {
+                assignArea(areaOrders, taken);
+            } catch (Exception e) {
+                System.err.println("[BatchMatchingService] Batch assignment failed, falling back to greedy: "
+                        + e.getMessage());
+                for (Order order : areaOrders) {
+                    matchingService.findDrivers(order);
+                }
+            }
+        }
+        batchSize.record(batch.size());
+    }
+
+    private void assignArea(List<Order> orders, Set<Long> taken) {
+        List<LinkedHashMap<Long, Double>> candidates = new ArrayList<>(orders.size());
+        Map<Long, Integer> driverColumns = new LinkedHashMap<>();
+        for (Order order : orders) {
+            LinkedHashMap<Long, Double> ranked = matchingService.rankCandidatesWithDistance(order);
+            ranked.keySet().removeAll(taken);
+            candidates.add(ranked);
+            for (Long driverId : ranked.keySet()) {
+                driverColumns.putIfAbsent(driverId, driverColumns.size());
+            }
+        }
+
+        List<Long> drivers = new ArrayList<>(driverColumns.keySet());
+        int[] assignment = new int[orders.size()];
+        Arrays.fill(assignment, -1);
+
+        if (!drivers.isEmpty()) {
+            // Cost = pickup distance; drivers outside an order's search rings are forbidden
+            double[][] cost = new double[orders.size()][drivers.size()];
+            for (int i = 0; i < orders.size(); i++) {
+                Arrays.fill(cost[i], HungarianAssignment.FORBIDDEN);
+                for (Map.Entry<Long, Double> entry : candidates.get(i).entrySet()) {
+                    cost[i][driverColumns.get(entry.getKey())] = entry.getValue();
+                }
+            }
+            assignment = HungarianAssignment.solve(cost);
+            pickupKm.record(HungarianAssignment.totalCost(cost, assignment));
+        }
+
+        Set<Long> assigned = new HashSet<>();
+        for (int col : assignment) {
+            if (col >= 0) {
+                assigned.add(drivers.get(col));
+            }
+        }
+        taken.addAll(assigned);
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            List<Long> offers = new ArrayList<>();
+            if (assignment[i] >= 0) {
+                offers.add(drivers.get(assignment[i]));
+            }
+            // Cascade through the order's other candidates not assigned elsewhere
+            for (Long driverId : candidates.get(i).keySet()) {
+                if (!assigned.contains(driverId)) {
+                    offers.add(driverId);
+                }
+            }
+            System.out.println("[BatchMatchingService] Order " + order.getId() + " assigned driver "
+                    + (offers.isEmpty() ? "none" : offers.get(0)) + " (" + offers.size() + " candidate(s))");
+            dispatchService.dispatch(order, offers);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.skygo.service;
+
+import com.skygo.model.DriverAvailability;
+import com.skygo.model.DriverSnapshot;
+import com.skygo.model.Order;
+import com.skygo.model.OrderStatus;
+import com.skygo.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sequential dispatch engine.
+ *
+ * Offers an order to its ranked candidates one driver at a time; on timeout or
+ * reject the order cascades to the next-closest candidate.
+ *
+ * The dispatch state lives in Redis so accept, reject and cancel work on any
+ * node, whichever node matched the order: the hash dispatch:{orderId} holds
+ * the candidate list, the position in it, the driver holding the offer and an
+ * offer sequence, and every offer deadline is a member "{orderId}:{seq}" of
+ * the sorted set dispatch:deadlines. Every node polls that set and takes due
+ * deadlines atomically, so each timeout is handled exactly once. State changes
+ * are single-key scripts; a dispatch whose node died mid-cascade expires and
+ * is picked up again by the matching recovery sweep.
+ *
+ * Before each offer the order must still be REQUESTED and the driver ONLINE
+ * with an FCM token; offers can go out minutes after ranking.
+ */
+@Service
+public class DispatchService {
+
+    private static final String KEY_PREFIX = "dispatch:";
+    private static final String DEADLINES_KEY = "dispatch:deadlines";
+
+    // ARGV = generation, candidates (comma separated), now ms, ttl ms
+    private static final RedisScript<Long> START_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('HSET', KEYS[1], 'g', ARGV[1], 'c', ARGV[2], 'i', 0, 'q', 0, 's', ARGV[3]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4]) "
+                    + "return 1",
+            Long.class);
+
+    // Next candidate, or -1 when the list ran out (dispatch removed), -2 if the dispatch is gone,
+    // was restarted or already has an offer out. ARGV = generation
+    private static final RedisScript<Long> ADVANCE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'g') ~= ARGV[1] or redis.call('HEXISTS', KEYS[1], 'd') == 1 then "
+                    + "  return -2 "
+                    + "end "
+                    + "local i = redis.call('HINCRBY', KEYS[1], 'i', 1) "
+                    + "local n = 0 "
+                    + "for id in string.gmatch(redis.call('HGET', KEYS[1], 'c'), '[^,]+') do "
+                    + "  n = n + 1 "
+                    + "  if n == i then return tonumber(id) end "
+                    + "end "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "return -1",
+            Long.class);
+
+    // Hand the offer to a driver; returns the offer sequence or -1. ARGV = generation, driver, now ms, ttl ms
+    private static final RedisScript<Long> OFFER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'g') ~= ARGV[1] or redis.call('HEXISTS', KEYS[1], 'd') == 1 then "
+                    + "  return -1 "
+                    + "end "
+                    + "redis.call('HSET', KEYS[1], 'd', ARGV[2], 'o', ARGV[3]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4]) "
+                    + "return redis.call('HINCRBY', KEYS[1], 'q', 1)",
+            Long.class);
+
+    // Take the offer back if field ARGV[1] still equals ARGV[2] (d = driver for a reject, q = sequence for a
+    // timeout). Returns {driver, generation}, or nothing if someone else already moved the dispatch on
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], 'd') == 0 or redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then "
+                    + "  return {} "
+                    + "end "
+                    + "local d = redis.call('HGET', KEYS[1], 'd') "
+                    + "redis.call('HDEL', KEYS[1], 'd') "
+                    + "redis.call('HINCRBY', KEYS[1], 'q', 1) "
+                    + "return {d, redis.call('HGET', KEYS[1], 'g')}",
+            List.class);
+
+    // Atomically take up to ARGV[2] deadlines due by ARGV[1]
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DUE_SCRIPT = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) "
+                    + "if #due > 0 then redis.call('ZREM', KEYS[1], unpack(due)) end "
+                    + "return due",
+            List.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private FcmService fcmService;
+
+    @Autowired
+    private DriverSnapshotCache driverSnapshotCache;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${matching.dispatch.offer-timeout-seconds:15}")
+    private long offerTimeoutSeconds;
+
+    @Value("${matching.dispatch.deadline-poll-ms:200}")
+    private long deadlinePollMs;
+
+    @Value("${matching.dispatch.deadline-batch:500}")
+    private int deadlineBatch;
+
+    private ScheduledExecutorService deadlinePoller;
+
+    // Offers do a DB read and blocking FCM calls, keep them off the poller thread
+    private ExecutorService offerExecutor;
+
+    private Counter offersSent;
+    private Counter offersTimedOut;
+    private Counter offersRejected;
+    private Counter offersSkipped;
+    private Counter dispatchesExhausted;
+    private Timer offerToAccept;
+    private Timer dispatchToAccept;
+
+    @PostConstruct
+    public void init() {
+        offerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+        offersSent = Counter.builder("skygo.dispatch.offers").tag("outcome", "sent").register(meterRegistry);
+        offersTimedOut = Counter.builder("skygo.dispatch.offers").tag("outcome", "timeout").register(meterRegistry);
+        offersRejected = Counter.builder("skygo.dispatch.offers").tag("outcome", "rejected").register(meterRegistry);
+        offersSkipped = Counter.builder("skygo.dispatch.offers").tag("outcome", "skipped")
+                .description("Candidates passed over because they went offline, busy or lost their FCM token")
+                .register(meterRegistry);
+        dispatchesExhausted = Counter.builder("skygo.dispatch.exhausted")
+                .description("Orders whose candidate list ran out without an accept")
+                .register(meterRegistry);
+        offerToAccept = Timer.builder("skygo.dispatch.offer.accept.latency")
+                .description("Time between an offer reaching a driver and that driver accepting")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        dispatchToAccept = Timer.builder("skygo.dispatch.accept.latency")
+                .description("Time between dispatch start and the order being accepted")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("skygo.dispatch.inflight", this, DispatchService::offersOut)
+                .description("Offers waiting for an answer, all nodes")
+                .register(meterRegistry);
+
+        deadlinePoller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dispatch-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlinePoller.scheduleWithFixedDelay(this::pollDeadlines, deadlinePollMs, deadlinePollMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlinePoller.shutdown();
+        offerExecutor.shutdown();
+    }
+
+    /**
+     * Start dispatching an order to the given candidates, closest first.
+     * Replaces a dispatch already running for the order.
+     */
+    public void dispatch(Order order, List<Long> rankedDriverIds) {
+        if (rankedDriverIds.isEmpty()) {
+            System.out.println("[DispatchService] No candidates for order " + order.getId());
+            dispatchesExhausted.increment();
+            return;
+        }
+
+        Long orderId = order.getId();
+        String generation = UUID.randomUUID().toString();
+        String candidates = rankedDriverIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            redisTemplate.execute(START_SCRIPT, List.of(KEY_PREFIX + orderId), generation, candidates,
+                    Long.toString(System.currentTimeMillis()), Long.toString(stateTtlMs()));
+        } catch (DataAccessException e) {
+            // The matching lease runs out and the recovery sweep matches the order again
+            System.err.println("[DispatchService] Could not start dispatch of order " + orderId + ": "
+                    + e.getMessage());
+            return;
+        }
+        offerNext(orderId, generation);
+    }
+
+    /**
+     * Driver declined the offer: cascade to the next candidate.
+     * Returns false if that driver did not hold the current offer.
+     */
+    public boolean reject(Long orderId, Long driverId) {
+        List<?> released = release(orderId, "d", driverId.toString());
+        if (released == null) {
+            return false;
+        }
+        offersRejected.increment();
+        System.out.println("[DispatchService] Driver " + driverId + " rejected order " + orderId);
+        String generation = released.get(1).toString();
+        offerExecutor.execute(() -> offerNext(orderId, generation));
+        return true;
+    }
+
+    /**
+     * Order was accepted: stop dispatching and record offer-to-accept latency.
+     */
+    public void accepted(Long orderId, Long driverId) {
+        String key = KEY_PREFIX + orderId;
+        try {
+            List<Object> state = redisTemplate.opsForHash().multiGet(key, List.of("d", "o", "s"));
+            redisTemplate.delete(key);
+            long now = System.currentTimeMillis();
+            if (driverId.toString().equals(state.get(0)) && state.get(1) != null) {
+                offerToAccept.record(now - Long.parseLong(state.get(1).toString()), TimeUnit.MILLISECONDS);
+            }
+            if (state.get(2) != null) {
+                dispatchToAccept.record(now - Long.parseLong(state.get(2).toString()), TimeUnit.MILLISECONDS);
+            }
+        } catch (DataAccessException e) {
+            // The next offer checks the order status and stops the cascade
+            System.err.println("[DispatchService] Could not stop dispatch of order " + orderId + ": "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Order was cancelled or otherwise left REQUESTED: drop its pending offer.
+     */
+    public void cancel(Long orderId) {
+        try {
+            redisTemplate.delete(KEY_PREFIX + orderId);
+        } catch (DataAccessException e) {
+            System.err.println("[DispatchService] Could not stop dispatch of order " + orderId + ": "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether any node is dispatching the order.
+     */
+    public boolean isDispatching(Long orderId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + orderId));
+    }
+
+    private void offerNext(Long orderId, String generation) {
+        try {
+            Order order = orderRepository.findById(orderId).orElse(null);
+            if (order == null || order.getStatus() != OrderStatus.REQUESTED) {
+                // Taken or cancelled meanwhile (the accept or cancel may have missed the state)
+                cancel(orderId);
+                return;
+            }
+
+            while (true) {
+                Long driverId = redisTemplate.execute(ADVANCE_SCRIPT, List.of(KEY_PREFIX + orderId), generation);
+                if (driverId == null || driverId == -2) {
+                    return;
+                }
+                if (driverId == -1) {
+                    dispatchesExhausted.increment();
+                    System.out.println("[DispatchService] All candidates declined, timed out or became unavailable"
+                            + " for order " + orderId);
+                    return;
+                }
+
+                DriverSnapshot driver = driverSnapshotCache.get(driverId);
+                if (driver == null || driver.getAvailability() != DriverAvailability.ONLINE
+                        || !driver.hasFcmToken()) {
+                    offersSkipped.increment();
+                    continue;
+                }
+
+                long now = System.currentTimeMillis();
+                Long seq = redisTemplate.execute(OFFER_SCRIPT, List.of(KEY_PREFIX + orderId), generation,
+                        driverId.toString(), Long.toString(now), Long.toString(stateTtlMs()));
+                if (seq == null || seq < 0) {
+                    return;
+                }
+                redisTemplate.opsForZSet().add(DEADLINES_KEY, orderId + ":" + seq,
+                        now + TimeUnit.SECONDS.toMillis(offerTimeoutSeconds));
+
+                sendOffer(order, driver);
+                return;
+            }
+        } catch (DataAccessException e) {
+            // The dispatch expires and the recovery sweep matches the order again
+            System.err.println("[DispatchService] Dispatch of order " + orderId + " stalled: " + e.getMessage());
+        }
+    }
+
+    private void pollDeadlines() {
+        try {
+            List<?> due;
+            do {
+                due = redisTemplate.execute(DUE_SCRIPT, List.of(DEADLINES_KEY),
+                        Long.toString(System.currentTimeMillis()), Integer.toString(deadlineBatch));
+                if (due == null) {
+                    return;
+                }
+                for (Object member : due) {
+                    String deadline = member.toString();
+                    int colon = deadline.indexOf(':');
+                    Long orderId = Long.valueOf(deadline.substring(0, colon));
+                    String seq = deadline.substring(colon + 1);
+                    offerExecutor.execute(() -> onTimeout(orderId, seq));
+                }
+            } while (due.size() == deadlineBatch);
+        } catch (Exception e) {
+            System.err.println("[DispatchService] Deadline poll failed: " + e.getMessage());
+        }
+    }
+
+    private void onTimeout(Long orderId, String seq) {
+        List<?> released;
+        try {
+            released = release(orderId, "q", seq);
+        } catch (DataAccessException e) {
+            System.err.println("[DispatchService] Timeout of order " + orderId + " lost: " + e.getMessage());
+            return;
+        }
+        if (released == null) {
+            // Accepted, rejected or cancelled in time
+            return;
+        }
+        offersTimedOut.increment();
+        System.out.println("[DispatchService] Offer to driver " + released.get(0) + " for order " + orderId
+                + " timed out after " + offerTimeoutSeconds + "s");
+        offerNext(orderId, released.get(1).toString());
+    }
+
+    // {driver, generation} of the released offer, or null if field did not match
+    private List<?> release(Long orderId, String field, String value) {
+        List<?> released = redisTemplate.execute(RELEASE_SCRIPT, List.of(KEY_PREFIX + orderId), field, value);
+        return released == null || released.size() < 2 ? null : released;
+    }
+
+    // Outlives one offer with room to spare; a dispatch nobody moves on disappears after this
+    private long stateTtlMs() {
+        return TimeUnit.SECONDS.toMillis(offerTimeoutSeconds) * 2 + 60_000;
+    }
+
+    private double offersOut() {
+        try {
+            Long size = redisTemplate.opsForZSet().zCard(DEADLINES_KEY);
+            return size != null ? size : Double.NaN;
+        } catch (DataAccessException e) {
+            return Double.NaN;
+        }
+    }
+
+    private void sendOffer(Order order, DriverSnapshot driver) {
+        offersSent.increment();
+        System.out.println("[DispatchService] Offering order " + order.getId() + " to driver " + driver.getId());
+
+        // Send Order Request to Driver via WebSocket
+        messagingTemplate.convertAndSend("/topic/driver/" + driver.getId() + "/orders", order);
+
+        // Send FCM notification
+        Map<String, String> data = new HashMap<>();
+        data.put("orderId", String.valueOf(order.getId()));
+        data.put("pickupAddress", order.getPickupAddress());
+        data.put("destinationAddress", order.getDestinationAddress());
+        data.put("price", String.valueOf(order.getEstimatedPrice()));
+        data.put("distance", String.valueOf(order.getDistanceKm()));
+        data.put("offerTimeoutSeconds", String.valueOf(offerTimeoutSeconds));
+
+        fcmService.sendNotification(
+                driver.getFcmToken(),
+                "New Order Available!",
+                "Pickup at: " + order.getPickupAddress(),
+                data);
+    }
+}
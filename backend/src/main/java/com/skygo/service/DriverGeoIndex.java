@@ -0,0 +1,659 @@
+package com.skygo.service;
+
+import com.skygo.model.DriverAvailability;
+import com.skygo.model.DriverSnapshot;
+import com.skygo.model.dto.LocationPoint;
+import com.skygo.repository.DriverRepository;
+import com.skygo.repository.ServiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.data.redis.domain.geo.GeoShape;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the Redis keys that hold driver positions.
+ *
+ * Positions are sharded by region, a tracking.geo.region-size-deg square
+ * ("row:col"). Every key of a region carries the hash tag {r:row:col}, so one
+ * region lives in one Redis Cluster slot and regions spread over the nodes:
+ *
+ * drivers:{r:R:C}:online                     every driver with a known position in the region
+ * drivers:{r:R:C}:geo:{serviceCode}:{avail}  one segment per ServiceEntity.code and
+ *                                            dispatchable availability (ONLINE, ON_TRIP)
+ * drivers:{r:R:C}:presence                   last-seen time (epoch ms), written with every
+ *                                            position and on heartbeats
+ * drivers:region                             hash driverId -> region the driver is in
+ * drivers:regions                            set of regions that ever held a driver
+ *
+ * Writes go to the region of the point; when a driver crosses into another
+ * region it is removed from the old one. Searches run on every known region
+ * the search area touches and the results are merged, so a pickup next to a
+ * region border still sees the drivers on the other side. Matching runs its
+ * GEOSEARCH on the ONLINE segment of the order's service type, so vehicle type
+ * and availability are filtered inside Redis. A driver is moved between
+ * segments atomically (Lua, single slot) when its availability changes.
+ *
+ * Each node caches a driver's region for region-cache-ms. Position writes,
+ * heartbeats and position reads use that cache (a miss is re-read from
+ * drivers:region); segment moves and removals always read drivers:region,
+ * because the driver may have crossed a border through another node. A batch
+ * of positions stays one pipeline however many drivers need their region
+ * checked; only drivers that actually crossed a border cost a second one.
+ *
+ * The pre-region keys (drivers:online, drivers:presence, drivers:geo:*) are
+ * deleted once, by the first node started after the change (marker key
+ * drivers:migrated:regions); their drivers reappear with the next location
+ * report.
+ */
+@Service
+public class DriverGeoIndex {
+
+    private static final String KEY_PREFIX = "drivers:";
+    public static final String DRIVER_REGION_KEY = "drivers:region";
+    public static final String REGIONS_KEY = "drivers:regions";
+    private static final String LEGACY_DROPPED_KEY = "drivers:migrated:regions";
+
+    private static final double KM_PER_DEG_LAT = 111.32;
+
+    // Availabilities that have their own segment; OFFLINE drivers are in none
+    private static final DriverAvailability[] SEGMENTED = { DriverAvailability.ONLINE, DriverAvailability.ON_TRIP };
+
+    // KEYS[1] = region all key, KEYS[2] = target segment, KEYS[3..] = segments to leave
+    // ARGV[1] = member, ARGV[2] = '1' if the driver should enter KEYS[2]
+    // Geo sets are sorted sets scored by geohash, so the position is copied with ZSCORE/ZADD
+    private static final RedisScript<Long> MOVE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 3, #KEYS do redis.call('ZREM', KEYS[i], ARGV[1]) end "
+                    + "if ARGV[2] == '1' then "
+                    + "  local score = redis.call('ZSCORE', KEYS[1], ARGV[1]) "
+                    + "  if score then redis.call('ZADD', KEYS[2], score, ARGV[1]) return 1 end "
+                    + "end "
+                    + "return 0",
+            Long.class);
+
+    // KEYS[1] = presence key, ARGV[1] = cutoff (ms), ARGV[2] = max members
+    // Claims (reads and removes) the oldest expired members in one step, so
+    // concurrent sweepers never evict the same driver twice
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final RedisScript<List> CLAIM_EXPIRED_SCRIPT = new DefaultRedisScript<>(
+            "local m = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) "
+                    + "if #m > 0 then redis.call('ZREM', KEYS[1], unpack(m)) end "
+                    + "return m",
+            List.class);
+
+    // KEYS[1] = driver region hash, ARGV[1] = member, ARGV[2] = new region; returns the previous region.
+    // Sent with EVAL (not EVALSHA) so it can run inside the position pipeline
+    private static final byte[] SWAP_REGION_SCRIPT = ("local old = redis.call('HGET', KEYS[1], ARGV[1]) "
+            + "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+            + "return old").getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private DriverSnapshotCache driverSnapshotCache;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Value("${tracking.geo.region-size-deg:0.5}")
+    private double regionSizeDeg;
+
+    // How long this node trusts its own idea of a driver's region before checking drivers:region again
+    @Value("${tracking.geo.region-cache-ms:60000}")
+    private long regionCacheMs;
+
+    private record CachedRegion(String region, long checkedAtMs) {
+    }
+
+    private final Map<Long, CachedRegion> regionOf = new ConcurrentHashMap<>();
+    private final Set<String> knownRegions = ConcurrentHashMap.newKeySet();
+    private volatile boolean regionsLoaded;
+
+    public String regionOf(double lat, double lng) {
+        return row(lat) + ":" + col(lng);
+    }
+
+    public static String allKey(String region) {
+        return KEY_PREFIX + tag(region) + ":online";
+    }
+
+    public static String presenceKey(String region) {
+        return KEY_PREFIX + tag(region) + ":presence";
+    }
+
+    public static String segmentKey(String region, String serviceCode, DriverAvailability availability) {
+        return KEY_PREFIX + tag(region) + ":geo:" + serviceCode.toUpperCase(Locale.ROOT) + ":" + availability.name();
+    }
+
+    /**
+     * Key of a region that holds the dispatchable (ONLINE) drivers of a service
+     * type. Falls back to all drivers of the region when there is no service type.
+     */
+    public static String searchKey(String region, String serviceCode) {
+        if (serviceCode == null || serviceCode.isEmpty()) {
+            return allKey(region);
+        }
+        return segmentKey(region, serviceCode, DriverAvailability.ONLINE);
+    }
+
+    /**
+     * Record the positions of a batch of drivers: the points are grouped per key
+     * (region key plus each driver's current segment in that region) and written
+     * as one multi-member GEOADD per key in a single pipeline, together with
+     * their last-seen time and, for drivers whose cached region is stale or
+     * differs, the swap of their drivers:region entry. Drivers that crossed a
+     * border are then removed from their old region in a second pipeline.
+     */
+    public void updateLocations(Collection<LocationPoint> points) {
+        Map<String, Map<String, Point>> byKey = new HashMap<>();
+        Map<String, Set<ZSetOperations.TypedTuple<String>>> seen = new HashMap<>();
+        List<Long> entering = new ArrayList<>();
+        List<String> enteringRegions = new ArrayList<>();
+        Map<Long, DriverSnapshot> snapshots = new HashMap<>();
+        Set<String> newRegions = new HashSet<>();
+        long nowMs = System.currentTimeMillis();
+        double now = nowMs;
+        for (LocationPoint point : points) {
+            String member = point.getDriverId().toString();
+            String region = regionOf(point.getLat(), point.getLng());
+            DriverSnapshot driver = driverSnapshotCache.get(point.getDriverId());
+            if (needsRegionSwap(point.getDriverId(), region, nowMs)) {
+                entering.add(point.getDriverId());
+                enteringRegions.add(region);
+                snapshots.put(point.getDriverId(), driver);
+                if (knownRegions.add(region)) {
+                    newRegions.add(region);
+                }
+            }
+
+            seen.computeIfAbsent(presenceKey(region), k -> new HashSet<>())
+                    .add(ZSetOperations.TypedTuple.of(member, now));
+            Point position = new Point(point.getLng(), point.getLat());
+            byKey.computeIfAbsent(allKey(region), k -> new HashMap<>()).put(member, position);
+            String segment = currentSegment(region, driver);
+            if (segment != null) {
+                byKey.computeIfAbsent(segment, k -> new HashMap<>()).put(member, position);
+            }
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+
+        // Swaps first, so their replies are the first entries of the pipeline result
+        List<Object> replies = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                if (!entering.isEmpty()) {
+                    ops.execute((RedisCallback<Object>) connection -> {
+                        byte[] regionKey = DRIVER_REGION_KEY.getBytes(StandardCharsets.UTF_8);
+                        for (int i = 0; i < entering.size(); i++) {
+                            connection.scriptingCommands().eval(SWAP_REGION_SCRIPT, ReturnType.VALUE, 1, regionKey,
+                                    entering.get(i).toString().getBytes(StandardCharsets.UTF_8),
+                                    enteringRegions.get(i).getBytes(StandardCharsets.UTF_8));
+                        }
+                        return null;
+                    });
+                }
+                if (!newRegions.isEmpty()) {
+                    ops.opsForSet().add(REGIONS_KEY, newRegions.toArray(new String[0]));
+                }
+                for (Map.Entry<String, Map<String, Point>> entry : byKey.entrySet()) {
+                    ops.opsForGeo().add(entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<String, Set<ZSetOperations.TypedTuple<String>>> entry : seen.entrySet()) {
+                    ops.opsForZSet().add(entry.getKey(), entry.getValue());
+                }
+                return null;
+            }
+        });
+
+        // Drivers that crossed a border (possibly through another node) leave their old region
+        Map<String, List<String>> leaving = new HashMap<>();
+        for (int i = 0; i < entering.size(); i++) {
+            Long driverId = entering.get(i);
+            String region = enteringRegions.get(i);
+            regionOf.put(driverId, new CachedRegion(region, nowMs));
+            Object previous = i < replies.size() ? replies.get(i) : null;
+            if (previous != null && !previous.toString().equals(region)) {
+                DriverSnapshot driver = snapshots.get(driverId);
+                for (String key : keysOf(previous.toString(), driver != null ? driver.getVehicleType() : null)) {
+                    leaving.computeIfAbsent(key, k -> new ArrayList<>()).add(driverId.toString());
+                }
+            }
+        }
+        removeMembers(leaving, List.of());
+    }
+
+    /**
+     * Atomically move a driver to the segment matching its new availability.
+     * OFFLINE leaves every segment but keeps the last position in the region key.
+     */
+    public void moveToSegment(Long driverId, String serviceCode, DriverAvailability availability) {
+        if (serviceCode == null || serviceCode.isEmpty()) {
+            return;
+        }
+        String region = storedRegion(driverId);
+        if (region == null) {
+            // No position yet; the first one is written to the right segment
+            return;
+        }
+        boolean segmented = isSegmented(availability);
+        List<String> keys = new ArrayList<>();
+        keys.add(allKey(region));
+        keys.add(segmented ? segmentKey(region, serviceCode, availability)
+                : segmentKey(region, serviceCode, DriverAvailability.ONLINE));
+        for (DriverAvailability other : SEGMENTED) {
+            if (other != availability) {
+                keys.add(segmentKey(region, serviceCode, other));
+            }
+        }
+        redisTemplate.execute(MOVE_SCRIPT, keys, driverId.toString(), segmented ? "1" : "0");
+    }
+
+    /**
+     * GEOSEARCH around (lat, lng) in every known region within reachKm (the
+     * distance from the center to the farthest point of the shape), merged
+     * closest first. args must include distances.
+     */
+    public List<GeoResult<RedisGeoCommands.GeoLocation<String>>> search(String serviceCode, double lat, double lng,
+            GeoShape shape, double reachKm, RedisGeoCommands.GeoSearchCommandArgs args, int limit) {
+        GeoReference<String> center = GeoReference.fromCoordinate(new Point(lng, lat));
+        List<String> regions = regionsWithin(lat, lng, reachKm);
+        if (regions.size() == 1) {
+            GeoResults<RedisGeoCommands.GeoLocation<String>> results = redisTemplate.opsForGeo()
+                    .search(searchKey(regions.get(0), serviceCode), center, shape, args);
+            return results != null ? results.getContent() : List.of();
+        }
+
+        // Border search: merge the regions, a driver caught in two of them mid-move counts once
+        Map<String, GeoResult<RedisGeoCommands.GeoLocation<String>>> merged = new HashMap<>();
+        for (String region : regions) {
+            GeoResults<RedisGeoCommands.GeoLocation<String>> results = redisTemplate.opsForGeo()
+                    .search(searchKey(region, serviceCode), center, shape, args);
+            if (results == null) {
+                continue;
+            }
+            for (GeoResult<RedisGeoCommands.GeoLocation<String>> result : results.getContent()) {
+                merged.merge(result.getContent().getName(), result,
+                        (a, b) -> a.getDistance().getValue() <= b.getDistance().getValue() ? a : b);
+            }
+        }
+        List<GeoResult<RedisGeoCommands.GeoLocation<String>>> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.comparingDouble(result -> result.getDistance().getValue()));
+        return sorted.size() > limit ? new ArrayList<>(sorted.subList(0, limit)) : sorted;
+    }
+
+    /**
+     * Positions of the given drivers: one region lookup, then one multi-member
+     * GEOPOS per region. Drivers without a known position are absent.
+     */
+    public Map<Long, Point> positions(List<Long> driverIds) {
+        Map<Long, Point> result = new HashMap<>();
+        Map<String, List<Long>> byRegion = new HashMap<>();
+        Map<Long, String> regions = currentRegions(driverIds);
+        regions.forEach((driverId, region) -> byRegion.computeIfAbsent(region, k -> new ArrayList<>()).add(driverId));
+
+        for (Map.Entry<String, List<Long>> entry : byRegion.entrySet()) {
+            List<Long> ids = entry.getValue();
+            String[] members = new String[ids.size()];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = ids.get(i).toString();
+            }
+            List<Point> points = redisTemplate.opsForGeo().position(allKey(entry.getKey()), members);
+            if (points != null) {
+                for (int i = 0; i < members.length && i < points.size(); i++) {
+                    if (points.get(i) != null) {
+                        result.put(ids.get(i), points.get(i));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Every position in every region (one ZRANGE + one GEOPOS per region).
+     */
+    public Map<Long, Point> allPositions() {
+        Map<Long, Point> result = new LinkedHashMap<>();
+        for (String region : regions()) {
+            String key = allKey(region);
+            Set<String> members = redisTemplate.opsForZSet().range(key, 0, -1);
+            if (members == null || members.isEmpty()) {
+                continue;
+            }
+            String[] memberArray = members.toArray(new String[0]);
+            List<Point> positions = redisTemplate.opsForGeo().position(key, memberArray);
+            if (positions != null) {
+                for (int i = 0; i < memberArray.length && i < positions.size(); i++) {
+                    if (positions.get(i) != null) {
+                        result.put(Long.parseLong(memberArray[i]), positions.get(i));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop a driver from every key of its region and from presence.
+     */
+    public void remove(Long driverId, String serviceCode) {
+        String region = storedRegion(driverId);
+        regionOf.remove(driverId);
+        redisTemplate.opsForHash().delete(DRIVER_REGION_KEY, driverId.toString());
+        if (region != null) {
+            removeFromRegion(region, driverId.toString(), serviceCode);
+        }
+    }
+
+    /**
+     * Drop a batch of drivers (driverId -> service code) from every key of their
+     * region: one region lookup, then one multi-member ZREM per key in a single
+     * pipeline.
+     */
+    public void removeAll(Map<Long, String> drivers) {
+        if (drivers.isEmpty()) {
+            return;
+        }
+        Map<Long, String> regions = storedRegions(new ArrayList<>(drivers.keySet()));
+        Map<String, List<String>> byKey = new HashMap<>();
+        List<String> members = new ArrayList<>();
+        for (Map.Entry<Long, String> driver : drivers.entrySet()) {
+            String member = driver.getKey().toString();
+            members.add(member);
+            regionOf.remove(driver.getKey());
+            String region = regions.get(driver.getKey());
+            if (region == null) {
+                continue;
+            }
+            for (String key : keysOf(region, driver.getValue())) {
+                byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(member);
+            }
+        }
+
+        removeMembers(byKey, members);
+    }
+
+    /**
+     * Mark a driver as seen now without a position (heartbeat). Drivers with no
+     * known region have no geo membership to keep alive.
+     */
+    public void touch(Long driverId) {
+        String region = currentRegion(driverId);
+        if (region != null) {
+            redisTemplate.opsForZSet().add(presenceKey(region), driverId.toString(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Remove and return up to limit drivers of a region last seen at or before
+     * cutoffMs, oldest first. Only reads the expired range of the presence set.
+     * Drivers that have since moved to another region are only dropped from
+     * this one and are not returned.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> claimExpired(String region, long cutoffMs, int limit) {
+        List<Object> members = redisTemplate.execute(CLAIM_EXPIRED_SCRIPT, List.of(presenceKey(region)),
+                Long.toString(cutoffMs), Integer.toString(limit));
+        List<Long> claimed = new ArrayList<>();
+        if (members != null) {
+            for (Object member : members) {
+                claimed.add(Long.parseLong(member.toString()));
+            }
+        }
+        if (claimed.isEmpty()) {
+            return claimed;
+        }
+
+        List<Object> fields = new ArrayList<>();
+        for (Long driverId : claimed) {
+            fields.add(driverId.toString());
+        }
+        List<Object> current = redisTemplate.opsForHash().multiGet(DRIVER_REGION_KEY, fields);
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < claimed.size(); i++) {
+            Object currentRegion = i < current.size() ? current.get(i) : null;
+            if (currentRegion == null || region.equals(currentRegion)) {
+                expired.add(claimed.get(i));
+            } else {
+                DriverSnapshot driver = driverSnapshotCache.get(claimed.get(i));
+                removeFromRegion(region, claimed.get(i).toString(), driver != null ? driver.getVehicleType() : null);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Regions that ever held a driver, shared by all nodes through drivers:regions.
+     */
+    public Set<String> regions() {
+        if (!regionsLoaded) {
+            refreshRegions();
+        }
+        return knownRegions;
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.geo.region-refresh-ms:30000}")
+    public void refreshRegions() {
+        Set<String> regions = redisTemplate.opsForSet().members(REGIONS_KEY);
+        if (regions != null) {
+            knownRegions.addAll(regions);
+        }
+        regionsLoaded = true;
+    }
+
+    // Known regions overlapping the square of +-reachKm around (lat, lng)
+    private List<String> regionsWithin(double lat, double lng, double reachKm) {
+        double dLat = reachKm / KM_PER_DEG_LAT;
+        double dLng = reachKm / (KM_PER_DEG_LAT * Math.max(Math.cos(Math.toRadians(Math.min(Math.abs(lat) + dLat, 89))), 0.01));
+        String home = regionOf(lat, lng);
+        Set<String> known = regions();
+        List<String> regions = new ArrayList<>();
+        regions.add(home);
+        for (long r = row(lat - dLat); r <= row(lat + dLat); r++) {
+            for (long c = col(lng - dLng); c <= col(lng + dLng); c++) {
+                String region = r + ":" + c;
+                if (!region.equals(home) && known.contains(region)) {
+                    regions.add(region);
+                }
+            }
+        }
+        return regions;
+    }
+
+    // Whether drivers:region must be pointed at this region: the cached region differs or is too old to trust
+    private boolean needsRegionSwap(Long driverId, String region, long now) {
+        CachedRegion cached = regionOf.get(driverId);
+        return cached == null || !cached.region().equals(region) || now - cached.checkedAtMs() >= regionCacheMs;
+    }
+
+    // Region from this node's cache while fresh, else from drivers:region (and cached again)
+    private String currentRegion(Long driverId) {
+        return currentRegions(List.of(driverId)).get(driverId);
+    }
+
+    private Map<Long, String> currentRegions(List<Long> driverIds) {
+        long now = System.currentTimeMillis();
+        Map<Long, String> regions = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long driverId : driverIds) {
+            CachedRegion cached = regionOf.get(driverId);
+            if (cached != null && now - cached.checkedAtMs() < regionCacheMs) {
+                regions.put(driverId, cached.region());
+            } else {
+                missing.add(driverId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            storedRegions(missing).forEach((driverId, region) -> {
+                regions.put(driverId, region);
+                regionOf.put(driverId, new CachedRegion(region, now));
+            });
+        }
+        return regions;
+    }
+
+    private String storedRegion(Long driverId) {
+        Object region = redisTemplate.opsForHash().get(DRIVER_REGION_KEY, driverId.toString());
+        return region != null ? region.toString() : null;
+    }
+
+    // Authoritative regions from drivers:region; drivers without one are absent
+    private Map<Long, String> storedRegions(List<Long> driverIds) {
+        Map<Long, String> regions = new HashMap<>();
+        List<Object> fields = new ArrayList<>(driverIds.size());
+        for (Long driverId : driverIds) {
+            fields.add(driverId.toString());
+        }
+        List<Object> found = redisTemplate.opsForHash().multiGet(DRIVER_REGION_KEY, fields);
+        for (int i = 0; i < driverIds.size() && i < found.size(); i++) {
+            if (found.get(i) != null) {
+                regions.put(driverIds.get(i), found.get(i).toString());
+            }
+        }
+        return regions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropLegacyKeys() {
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(LEGACY_DROPPED_KEY))) {
+                return;
+            }
+            Set<String> codes = new HashSet<>(serviceRepository.findAllCodes());
+            codes.addAll(driverRepository.findDistinctVehicleTypes());
+            List<String> keys = new ArrayList<>(List.of(KEY_PREFIX + "online", KEY_PREFIX + "presence"));
+            for (String code : codes) {
+                for (DriverAvailability availability : SEGMENTED) {
+                    keys.add(KEY_PREFIX + "geo:" + code.toUpperCase(Locale.ROOT) + ":" + availability.name());
+                }
+            }
+            // One key at a time: the legacy keys hash to different cluster slots
+            long dropped = 0;
+            for (String key : keys) {
+                if (Boolean.TRUE.equals(redisTemplate.unlink(key))) {
+                    dropped++;
+                }
+            }
+            // Concurrent first starts may both get here; unlinking twice is harmless
+            redisTemplate.opsForValue().set(LEGACY_DROPPED_KEY, Long.toString(System.currentTimeMillis()));
+            System.out.println("[DriverGeoIndex] Dropped " + dropped + " pre-region geo key(s), marked "
+                    + LEGACY_DROPPED_KEY);
+        } catch (Exception e) {
+            System.err.println("[DriverGeoIndex] Could not drop pre-region geo keys: " + e.getMessage());
+        }
+    }
+
+    private void removeFromRegion(String region, String member, String serviceCode) {
+        List<String> keys = keysOf(region, serviceCode);
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (String key : keys) {
+                    ops.opsForZSet().remove(key, member);
+                }
+                return null;
+            }
+        });
+    }
+
+    // One multi-member ZREM per key, plus dropping drivers:region fields, in one pipeline
+    private void removeMembers(Map<String, List<String>> byKey, List<String> regionFields) {
+        if (byKey.isEmpty() && regionFields.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (Map.Entry<String, List<String>> entry : byKey.entrySet()) {
+                    ops.opsForZSet().remove(entry.getKey(), entry.getValue().toArray());
+                }
+                if (!regionFields.isEmpty()) {
+                    ops.opsForHash().delete(DRIVER_REGION_KEY, regionFields.toArray());
+                }
+                return null;
+            }
+        });
+    }
+
+    // Every key of a region a driver of this service type can be in
+    private static List<String> keysOf(String region, String serviceCode) {
+        List<String> keys = new ArrayList<>();
+        keys.add(allKey(region));
+        keys.add(presenceKey(region));
+        if (serviceCode != null && !serviceCode.isEmpty()) {
+            for (DriverAvailability availability : SEGMENTED) {
+                keys.add(segmentKey(region, serviceCode, availability));
+            }
+        }
+        return keys;
+    }
+
+    private String currentSegment(String region, DriverSnapshot driver) {
+        if (driver == null || driver.getVehicleType() == null || driver.getVehicleType().isEmpty()
+                || !isSegmented(driver.getAvailability())) {
+            return null;
+        }
+        return segmentKey(region, driver.getVehicleType(), driver.getAvailability());
+    }
+
+    private long row(double lat) {
+        return (long) Math.floor((lat + 90) / regionSizeDeg);
+    }
+
+    private long col(double lng) {
+        return (long) Math.floor((lng + 180) / regionSizeDeg);
+    }
+
+    private static String tag(String region) {
+        return "{r:" + region + "}";
+    }
+
+    private static boolean isSegmented(DriverAvailability availability) {
+        for (DriverAvailability segmented : SEGMENTED) {
+            if (segmented == availability) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
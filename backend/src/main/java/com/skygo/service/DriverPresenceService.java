@@ -0,0 +1,91 @@
+package com.skygo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Evicts drivers that stopped reporting.
+ *
+ * Every position write and every heartbeat stamps the driver in its region's
+ * presence set (see DriverGeoIndex). The sweep claims, region by region,
+ * members last seen more than tracking.presence.ttl-ms ago, oldest first and
+ * sweep-batch at a time, so its cost follows the number of expired drivers,
+ * not the fleet size.
+ * Claimed drivers leave every geo key and, if they were ONLINE, are set
+ * OFFLINE in one bulk update. ON_TRIP drivers keep their availability; they
+ * re-enter the geo keys with their next location.
+ */
+@Service
+public class DriverPresenceService {
+
+    @Autowired
+    private DriverGeoIndex driverGeoIndex;
+
+    @Autowired
+    private TrackingService trackingService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tracking.presence.ttl-ms:90000}")
+    private long ttlMs;
+
+    @Value("${tracking.presence.sweep-batch:500}")
+    private int sweepBatch;
+
+    private Counter evicted;
+    private Counter markedOffline;
+
+    @PostConstruct
+    public void init() {
+        evicted = Counter.builder("skygo.tracking.presence.evicted")
+                .description("Silent drivers removed from the geo keys")
+                .register(meterRegistry);
+        markedOffline = Counter.builder("skygo.tracking.presence.offline")
+                .description("Silent ONLINE drivers set OFFLINE")
+                .register(meterRegistry);
+    }
+
+    public void heartbeat(Long driverId) {
+        driverGeoIndex.touch(driverId);
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.presence.sweep-interval-ms:15000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        for (String region : driverGeoIndex.regions()) {
+            try {
+                sweep(region, cutoff);
+            } catch (Exception e) {
+                System.err.println("[DriverPresence] Sweep of region " + region + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void sweep(String region, long cutoff) {
+        List<Long> expired;
+        do {
+            expired = driverGeoIndex.claimExpired(region, cutoff, sweepBatch);
+            if (expired.isEmpty()) {
+                break;
+            }
+            trackingService.removeDriversFromGeo(expired);
+            evicted.increment(expired.size());
+
+            List<Long> offline = driverService.markOffline(expired);
+            markedOffline.increment(offline.size());
+            System.out.println("[DriverPresence] Evicted " + expired.size() + " silent driver(s) in region "
+                    + region + ", " + offline.size() + " set OFFLINE");
+        } while (expired.size() == sweepBatch);
+    }
+}
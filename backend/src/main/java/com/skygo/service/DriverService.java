@@ -9,12 +9,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class DriverService {
 
     private final DriverRepository driverRepository;
     private final MinioService minioService;
+    private final DriverSnapshotCache driverSnapshotCache;
+    private final DriverGeoIndex driverGeoIndex;
+    private final FleetChangeLog fleetChangeLog;
     // private final PasswordEncoder passwordEncoder; // Assuming we might need this
     // later
 
@@ -76,7 +82,9 @@ public class DriverService {
             driver.setPhotoUrl(photoUrl);
         }
 
-        return driverRepository.save(driver);
+        Driver saved = driverRepository.save(driver);
+        driverSnapshotCache.refresh(saved);
+        return saved;
     }
 
     @Transactional
@@ -84,7 +92,7 @@ public class DriverService {
         Driver driver = driverRepository.findById(driverId)
                 .orElseThrow(() -> new RuntimeException("Driver not found"));
         driver.setFcmToken(fcmToken);
-        driverRepository.save(driver);
+        driverSnapshotCache.refresh(driverRepository.save(driver));
     }
 
     @Transactional
@@ -92,15 +100,52 @@ public class DriverService {
         Driver driver = driverRepository.findById(driverId)
                 .orElseThrow(() -> new RuntimeException("Driver not found"));
         driver.setStatus(status);
-        return driverRepository.save(driver);
+        Driver saved = driverRepository.save(driver);
+        driverSnapshotCache.refresh(saved);
+        return saved;
     }
 
     @Transactional
     public void setDriverAvailability(Long driverId, boolean available) {
+        setDriverAvailability(driverId, available ? DriverAvailability.ONLINE : DriverAvailability.OFFLINE);
+    }
+
+    @Transactional
+    public void setDriverAvailability(Long driverId, DriverAvailability availability) {
         Driver driver = driverRepository.findById(driverId)
                 .orElseThrow(() -> new RuntimeException("Driver not found"));
-        driver.setAvailability(available ? DriverAvailability.ONLINE : DriverAvailability.OFFLINE);
-        driverRepository.save(driver);
+        driver.setAvailability(availability);
+        driverSnapshotCache.refresh(driverRepository.save(driver));
+
+        // Move the driver between geo segments once the new availability is committed
+        String vehicleType = driver.getVehicleType();
+        AfterCommit.run(() -> {
+            driverGeoIndex.moveToSegment(driverId, vehicleType, availability);
+            fleetChangeLog.availabilityChanged(driverId, availability);
+        });
+    }
+
+    /**
+     * Flip the given drivers from ONLINE to OFFLINE in one statement. Drivers in
+     * any other state (ON_TRIP, already OFFLINE) are left alone. Returns the
+     * drivers that were flipped.
+     */
+    @Transactional
+    public List<Long> markOffline(Collection<Long> driverIds) {
+        List<Long> online = driverRepository.findIdsByIdInAndAvailability(driverIds, DriverAvailability.ONLINE);
+        if (online.isEmpty()) {
+            return online;
+        }
+        driverRepository.updateAvailability(online, DriverAvailability.ONLINE, DriverAvailability.OFFLINE);
+
+        // The bulk update bypasses the entities; snapshots reload on next access
+        AfterCommit.run(() -> {
+            driverSnapshotCache.evictAll(online);
+            for (Long driverId : online) {
+                fleetChangeLog.availabilityChanged(driverId, DriverAvailability.OFFLINE);
+            }
+        });
+        return online;
     }
 
     public java.util.List<Driver> getPendingDrivers() {
@@ -0,0 +1,186 @@
+package com.skygo.service;
+
+import com.skygo.model.Driver;
+import com.skygo.model.DriverSnapshot;
+import com.skygo.repository.DriverRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory driver snapshot cache (id -> vehicleType, fcmToken, availability,
+ * status, rating) used by matching to filter candidates without DB round trips.
+ *
+ * Warmed on startup, refreshed by every driver write path and read-through on
+ * miss (e.g. a driver registered on another node).
+ *
+ * Every node keeps its own copy. Writes are broadcast on the Redis channel
+ * drivers:snapshot:evict after commit, and the other nodes drop their copy so
+ * the next lookup reloads it. Entries also expire after
+ * matching.snapshot-cache.ttl-ms, which bounds staleness when a broadcast is
+ * lost (Redis pub/sub is fire and forget).
+ */
+@Service
+public class DriverSnapshotCache {
+
+    private static final String EVICT_CHANNEL = "drivers:snapshot:evict";
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${matching.snapshot-cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    // Tells our own broadcasts apart from other nodes'
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, Entry> snapshots = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    private record Entry(DriverSnapshot snapshot, long loadedMs) {
+    }
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("skygo.driver.snapshot.cache")
+                .tag("result", "hit")
+                .description("Driver snapshot lookups served from memory")
+                .register(meterRegistry);
+        misses = Counter.builder("skygo.driver.snapshot.cache")
+                .tag("result", "miss")
+                .description("Driver snapshot lookups that fell through to the DB")
+                .register(meterRegistry);
+        Gauge.builder("skygo.driver.snapshot.cache.size", snapshots, Map::size)
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onEvict(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Driver driver : driverRepository.findAll()) {
+                snapshots.put(driver.getId(), new Entry(DriverSnapshot.of(driver), now));
+            }
+            System.out.println("[DriverSnapshotCache] Warmed with " + snapshots.size() + " driver(s)");
+        } catch (Exception e) {
+            System.err.println("[DriverSnapshotCache] Warm-up failed, falling back to read-through: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the snapshot of a driver, loading it from the DB on a miss or once
+     * the cached copy expired. Returns null if the driver does not exist.
+     */
+    public DriverSnapshot get(Long driverId) {
+        Entry entry = snapshots.get(driverId);
+        if (entry != null && System.currentTimeMillis() - entry.loadedMs() < ttlMs) {
+            hits.increment();
+            return entry.snapshot();
+        }
+
+        misses.increment();
+        return driverRepository.findById(driverId)
+                .map(this::put)
+                .orElseGet(() -> {
+                    snapshots.remove(driverId);
+                    return null;
+                });
+    }
+
+    /**
+     * Refresh the snapshot from a saved entity. Inside a transaction the cache is
+     * only updated (and other nodes told) after commit so a rollback never leaks
+     * into matching.
+     */
+    public void refresh(Driver driver) {
+        if (driver == null || driver.getId() == null) {
+            return;
+        }
+        DriverSnapshot snapshot = DriverSnapshot.of(driver);
+        AfterCommit.run(() -> {
+            snapshots.put(snapshot.getId(), new Entry(snapshot, System.currentTimeMillis()));
+            broadcast(List.of(snapshot.getId()));
+        });
+    }
+
+    public void evict(Long driverId) {
+        evictAll(List.of(driverId));
+    }
+
+    /**
+     * Drop the given drivers here and on every other node; call after commit.
+     */
+    public void evictAll(Collection<Long> driverIds) {
+        if (driverIds.isEmpty()) {
+            return;
+        }
+        driverIds.forEach(snapshots::remove);
+        broadcast(driverIds);
+    }
+
+    private void broadcast(Collection<Long> driverIds) {
+        String ids = driverIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            redisTemplate.convertAndSend(EVICT_CHANNEL, nodeId + " " + ids);
+        } catch (DataAccessException e) {
+            // Other nodes catch up when their copies expire
+            System.err.println("[DriverSnapshotCache] Could not broadcast eviction of " + ids + ": "
+                    + e.getMessage());
+        }
+    }
+
+    // Message: "{nodeId} {driverId},{driverId},..."
+    private void onEvict(String message) {
+        int space = message.indexOf(' ');
+        if (space < 0 || message.substring(0, space).equals(nodeId)) {
+            return;
+        }
+        for (String id : message.substring(space + 1).split(",")) {
+            try {
+                snapshots.remove(Long.valueOf(id));
+            } catch (NumberFormatException e) {
+                System.err.println("[DriverSnapshotCache] Ignoring bad eviction id: " + id);
+            }
+        }
+    }
+
+    private DriverSnapshot put(Driver driver) {
+        DriverSnapshot snapshot = DriverSnapshot.of(driver);
+        snapshots.put(snapshot.getId(), new Entry(snapshot, System.currentTimeMillis()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,210 @@
+package com.skygo.service;
+
+import com.skygo.model.DriverAvailability;
+import com.skygo.model.DriverSnapshot;
+import com.skygo.model.dto.FleetChange;
+import com.skygo.model.dto.FleetDelta;
+import com.skygo.model.dto.LocationPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Versioned fleet state for the admin live map.
+ *
+ * Every change (moved, went online, went offline, availability changed) gets
+ * the next version and is kept in a ring of tracking.changelog.capacity
+ * entries. Clients hold a version and ask for what changed since; the answer
+ * is the missing entries, or the full state when the client is too far behind
+ * (older than the ring, more changes than drivers, or an unknown version).
+ * New entries are also pushed to /topic/fleet/changes once per
+ * publish-interval-ms.
+ *
+ * MOVED entries come from the conflated fleet broadcast, so a driver moves at
+ * most once per tracking.broadcast.fleet-interval-ms in the log as well.
+ *
+ * The log is per node: versions count this node's changes only, so every
+ * answer carries the log's epoch (random per node start) and a since version
+ * from another epoch, i.e. another node behind the load balancer or before a
+ * restart, gets the full state instead of an unrelated delta.
+ */
+@Service
+public class FleetChangeLog {
+
+    public static final String TOPIC = "/topic/fleet/changes";
+
+    @Autowired
+    private DriverGeoIndex driverGeoIndex;
+
+    @Autowired
+    private DriverSnapshotCache driverSnapshotCache;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tracking.changelog.capacity:100000}")
+    private int capacity;
+
+    private final String epoch = UUID.randomUUID().toString();
+
+    // Guarded by this
+    private FleetChange[] ring;
+    private long version;
+    private final Map<Long, FleetChange> state = new HashMap<>();
+
+    private volatile long publishedVersion;
+
+    private Counter fullSyncs;
+    private Counter deltaSyncs;
+
+    @PostConstruct
+    public void init() {
+        ring = new FleetChange[capacity];
+        version = System.currentTimeMillis() * 1000;
+        publishedVersion = version;
+
+        fullSyncs = Counter.builder("skygo.tracking.changelog.syncs")
+                .tag("kind", "full")
+                .register(meterRegistry);
+        deltaSyncs = Counter.builder("skygo.tracking.changelog.syncs")
+                .tag("kind", "delta")
+                .register(meterRegistry);
+        Gauge.builder("skygo.tracking.changelog.version", this, FleetChangeLog::currentVersion)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            driverGeoIndex.allPositions().forEach((driverId, point) -> {
+                DriverSnapshot snapshot = driverSnapshotCache.get(driverId);
+                DriverAvailability availability = snapshot != null ? snapshot.getAvailability() : null;
+                if (availability != DriverAvailability.OFFLINE) {
+                    putState(driverId, point.getY(), point.getX(), availability);
+                }
+            });
+            System.out.println("[FleetChangeLog] Warmed with " + stateSize() + " driver(s)");
+        } catch (Exception e) {
+            System.err.println("[FleetChangeLog] Warm-up from Redis failed, state fills from live updates: "
+                    + e.getMessage());
+        }
+    }
+
+    public void moved(LocationPoint point) {
+        Long driverId = point.getDriverId();
+        DriverAvailability availability = null;
+        if (!isKnown(driverId)) {
+            DriverSnapshot snapshot = driverSnapshotCache.get(driverId);
+            availability = snapshot != null ? snapshot.getAvailability() : null;
+            // A point flushed after the driver went offline
+            if (availability == DriverAvailability.OFFLINE) {
+                return;
+            }
+        }
+        record(FleetChange.Type.MOVED, driverId, point.getLat(), point.getLng(), availability);
+    }
+
+    public void availabilityChanged(Long driverId, DriverAvailability availability) {
+        FleetChange.Type type = switch (availability) {
+            case ONLINE -> FleetChange.Type.ONLINE;
+            case OFFLINE -> FleetChange.Type.OFFLINE;
+            default -> FleetChange.Type.STATUS;
+        };
+        record(type, driverId, null, null, availability);
+    }
+
+    /**
+     * Changes after the given version, or the full state when they are no longer
+     * (or were never) in the log. A null version, or one issued under another
+     * epoch, always gets the full state.
+     */
+    public FleetDelta since(Long sinceVersion, String sinceEpoch) {
+        FleetDelta delta;
+        synchronized (this) {
+            delta = sinceLocked(epoch.equals(sinceEpoch) ? sinceVersion : null);
+        }
+        (delta.isFull() ? fullSyncs : deltaSyncs).increment();
+        return delta;
+    }
+
+    public synchronized long currentVersion() {
+        return version;
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.changelog.publish-interval-ms:1000}")
+    public void publish() {
+        long from = publishedVersion;
+        FleetDelta delta;
+        synchronized (this) {
+            if (version == from) {
+                return;
+            }
+            delta = sinceLocked(from);
+        }
+        if (delta.isFull()) {
+            // Subscribers missed entries that are gone; tell them to resync over HTTP
+            delta.setChanges(List.of());
+        }
+        publishedVersion = delta.getVersion();
+        messagingTemplate.convertAndSend(TOPIC, delta);
+    }
+
+    private synchronized boolean isKnown(Long driverId) {
+        return state.containsKey(driverId);
+    }
+
+    private synchronized int stateSize() {
+        return state.size();
+    }
+
+    private synchronized void putState(Long driverId, double lat, double lng, DriverAvailability availability) {
+        state.put(driverId, new FleetChange(version, FleetChange.Type.STATE, driverId, lat, lng, availability));
+    }
+
+    private synchronized void record(FleetChange.Type type, Long driverId, Double lat, Double lng,
+            DriverAvailability availability) {
+        long v = ++version;
+        ring[(int) (v % capacity)] = new FleetChange(v, type, driverId, lat, lng, availability);
+
+        if (type == FleetChange.Type.OFFLINE) {
+            state.remove(driverId);
+            return;
+        }
+        FleetChange previous = state.get(driverId);
+        state.put(driverId, new FleetChange(v, FleetChange.Type.STATE, driverId,
+                lat != null ? lat : previous != null ? previous.getLat() : null,
+                lng != null ? lng : previous != null ? previous.getLng() : null,
+                availability != null ? availability : previous != null ? previous.getAvailability() : null));
+    }
+
+    // Caller holds the lock
+    private FleetDelta sinceLocked(Long sinceVersion) {
+        if (sinceVersion == null || sinceVersion > version || version - sinceVersion > capacity
+                || version - sinceVersion > state.size()) {
+            return new FleetDelta(epoch, sinceVersion != null ? sinceVersion : 0, version, true,
+                    new ArrayList<>(state.values()));
+        }
+        List<FleetChange> changes = new ArrayList<>((int) (version - sinceVersion));
+        for (long v = sinceVersion + 1; v <= version; v++) {
+            changes.add(ring[(int) (v % capacity)]);
+        }
+        return new FleetDelta(epoch, sinceVersion, version, false, changes);
+    }
+}
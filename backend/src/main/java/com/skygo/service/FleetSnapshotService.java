@@ -0,0 +1,94 @@
+package com.skygo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skygo.model.dto.ApiResponse;
+import com.skygo.model.dto.DriverLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Shared, immutable snapshot of every driver position in Redis GEO.
+ *
+ * Built at most once per tracking.snapshot.max-age-ms, on demand: the first
+ * caller after expiry rebuilds it (one ZRANGE + one GEOPOS) while concurrent
+ * callers wait for that build instead of scanning Redis themselves. The
+ * /online-drivers response body is serialized once per build and served with
+ * an ETag, so unchanged polls can be answered with 304.
+ */
+@Service
+public class FleetSnapshotService {
+
+    public record FleetSnapshot(List<DriverLocation> drivers, byte[] json, String etag, long builtAtMs) {
+    }
+
+    @Autowired
+    private TrackingService trackingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tracking.snapshot.max-age-ms:1000}")
+    private long maxAgeMs;
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private volatile FleetSnapshot current;
+
+    private Counter builds;
+
+    @PostConstruct
+    public void init() {
+        builds = Counter.builder("skygo.tracking.snapshot.builds")
+                .description("Fleet snapshots rebuilt from Redis")
+                .register(meterRegistry);
+    }
+
+    public FleetSnapshot current() {
+        FleetSnapshot snapshot = current;
+        if (isFresh(snapshot)) {
+            return snapshot;
+        }
+        buildLock.lock();
+        try {
+            // Another caller may have rebuilt it while we waited
+            snapshot = current;
+            if (isFresh(snapshot)) {
+                return snapshot;
+            }
+            snapshot = build();
+            current = snapshot;
+            return snapshot;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private boolean isFresh(FleetSnapshot snapshot) {
+        return snapshot != null && System.currentTimeMillis() - snapshot.builtAtMs() < maxAgeMs;
+    }
+
+    private FleetSnapshot build() {
+        builds.increment();
+        List<DriverLocation> drivers = List.copyOf(trackingService.getAllDriverLocations());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(ApiResponse.success("Online driver locations", drivers));
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + json.length + "\"";
+            return new FleetSnapshot(drivers, json, etag, System.currentTimeMillis());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize fleet snapshot: " + e.getMessage(), e);
+        }
+    }
+}
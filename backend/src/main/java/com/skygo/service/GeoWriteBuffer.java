@@ -0,0 +1,193 @@
+package com.skygo.service;
+
+import com.skygo.model.dto.LocationPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for driver positions in Redis GEO.
+ *
+ * Ingest threads only put the point into a map (latest point per driver wins);
+ * a flusher thread writes the whole map every tracking.geo-write.flush-interval-ms,
+ * or as soon as flush-size drivers are pending, through
+ * DriverGeoIndex.updateLocations (one multi-member GEOADD per key, pipelined).
+ *
+ * Memory is bounded by max-pending drivers: an ingest thread that finds the
+ * buffer full flushes it itself, which slows producers down to Redis speed;
+ * if the buffer is still full after that (Redis down) the point is dropped.
+ * Points that fail to flush are re-queued unless a newer one arrived or the
+ * buffer is full (then dropped and counted).
+ *
+ * Batches are taken and written under flushLock, one batch at a time, and
+ * discard takes the same lock: once it returns, no older point of the driver
+ * is in flight or re-queued, so removing the driver from the geo keys right
+ * after cannot be undone by a late write.
+ */
+@Service
+public class GeoWriteBuffer {
+
+    @Autowired
+    private DriverGeoIndex driverGeoIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tracking.geo-write.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${tracking.geo-write.flush-size:2000}")
+    private int flushSize;
+
+    @Value("${tracking.geo-write.max-pending:50000}")
+    private int maxPending;
+
+    private final Map<Long, LocationPoint> pending = new ConcurrentHashMap<>();
+    // Fair, so discard gets in between the batches of a long flush
+    private final ReentrantLock flushLock = new ReentrantLock(true);
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService flusher;
+
+    private Timer flushLatency;
+    private DistributionSummary flushBatchSize;
+    private Counter callerFlushes;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        flushLatency = Timer.builder("skygo.tracking.geo.flush.latency")
+                .description("Time to write one buffered batch of positions to Redis")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        flushBatchSize = DistributionSummary.builder("skygo.tracking.geo.flush.size")
+                .description("Drivers written per flush")
+                .register(meterRegistry);
+        callerFlushes = Counter.builder("skygo.tracking.geo.flush.backpressure")
+                .description("Flushes run on an ingest thread because the buffer was full")
+                .register(meterRegistry);
+        dropped = Counter.builder("skygo.tracking.geo.dropped")
+                .description("Positions dropped because the buffer stayed full while Redis failed")
+                .register(meterRegistry);
+        Gauge.builder("skygo.tracking.geo.pending", pending, Map::size).register(meterRegistry);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "geo-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        System.out.println("[GeoWriteBuffer] Flushed on shutdown, " + pending.size() + " position(s) left");
+    }
+
+    public void offer(LocationPoint point) {
+        Long driverId = point.getDriverId();
+        if (pending.size() >= maxPending && !pending.containsKey(driverId)) {
+            callerFlushes.increment();
+            flush();
+            if (pending.size() >= maxPending && !pending.containsKey(driverId)) {
+                dropped.increment();
+                return;
+            }
+        }
+        pending.put(driverId, point);
+
+        if (pending.size() >= flushSize && earlyFlushScheduled.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                earlyFlushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Forget buffered positions before the drivers are removed from the geo keys.
+     * Waits for a batch in flight, so none of their older points lands afterwards.
+     */
+    public void discard(Collection<Long> driverIds) {
+        flushLock.lock();
+        try {
+            for (Long driverId : driverIds) {
+                pending.remove(driverId);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void flush() {
+        while (!pending.isEmpty()) {
+            flushLock.lock();
+            try {
+                List<LocationPoint> batch = new ArrayList<>(Math.min(pending.size(), flushSize));
+                for (Long driverId : pending.keySet()) {
+                    LocationPoint point = pending.remove(driverId);
+                    if (point != null) {
+                        batch.add(point);
+                    }
+                    if (batch.size() >= flushSize) {
+                        break;
+                    }
+                }
+                if (!write(batch)) {
+                    return;
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    private boolean write(List<LocationPoint> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            driverGeoIndex.updateLocations(batch);
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushBatchSize.record(batch.size());
+            return true;
+        } catch (Exception e) {
+            System.err.println("[GeoWriteBuffer] Flush of " + batch.size() + " position(s) failed: " + e.getMessage());
+            for (LocationPoint point : batch) {
+                if (pending.size() < maxPending) {
+                    // A newer point for the same driver wins
+                    pending.putIfAbsent(point.getDriverId(), point);
+                } else {
+                    dropped.increment();
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.skygo.service;
+
+import com.skygo.geo.SpatialGridIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-JVM copy of the driver positions held in Redis GEO.
+ *
+ * Fed by TrackingService on every location update and warmed from
+ * the Redis region keys on startup. Matching uses it either as the primary search path
+ * (matching.local-index.mode=primary, Redis stays the shared/durable store) or
+ * only when a Redis search fails (fallback, the default).
+ *
+ * Each node only sees the locations ingested on it, so primary mode is meant
+ * for a single node, or for deployments that route every driver's updates to
+ * every matching node; otherwise use fallback. Removals (offline, presence
+ * sweep) are broadcast on the Redis channel drivers:local-index:remove so no
+ * node keeps a ghost, and positions not updated for max-age-ms are dropped.
+ */
+@Service
+public class LocalDriverIndex {
+
+    private static final String REMOVE_CHANNEL = "drivers:local-index:remove";
+
+    @Autowired
+    private DriverGeoIndex driverGeoIndex;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // off | fallback | primary
+    @Value("${matching.local-index.mode:fallback}")
+    private String mode;
+
+    @Value("${matching.local-index.cell-size-deg:0.01}")
+    private double cellSizeDeg;
+
+    // Same as the presence TTL: a driver silent this long is gone from Redis too
+    @Value("${matching.local-index.max-age-ms:90000}")
+    private long maxAgeMs;
+
+    // Tells our own broadcasts apart from other nodes'
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private SpatialGridIndex index;
+
+    @PostConstruct
+    public void init() {
+        index = new SpatialGridIndex(cellSizeDeg);
+        Gauge.builder("skygo.matching.local-index.size", index, SpatialGridIndex::size)
+                .register(meterRegistry);
+
+        if (isEnabled()) {
+            listenerContainer.addMessageListener(
+                    (message, pattern) -> onRemove(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(REMOVE_CHANNEL));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            driverGeoIndex.allPositions().forEach((driverId, point) -> index.update(driverId, point.getY(), point.getX()));
+            System.out.println("[LocalDriverIndex] Warmed with " + index.size() + " driver position(s)");
+        } catch (Exception e) {
+            System.err.println("[LocalDriverIndex] Warm-up from Redis failed, index fills from live updates: "
+                    + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${matching.local-index.expire-interval-ms:10000}")
+    public void expire() {
+        if (!isEnabled()) {
+            return;
+        }
+        int removed = index.removeOlderThan(System.currentTimeMillis() - maxAgeMs);
+        if (removed > 0) {
+            System.out.println("[LocalDriverIndex] Dropped " + removed + " stale driver position(s)");
+        }
+    }
+
+    public boolean isEnabled() {
+        return !"off".equalsIgnoreCase(mode);
+    }
+
+    public boolean isPrimary() {
+        return "primary".equalsIgnoreCase(mode);
+    }
+
+    public void update(Long driverId, double lat, double lng) {
+        if (isEnabled()) {
+            index.update(driverId, lat, lng);
+        }
+    }
+
+    public void remove(Long driverId) {
+        removeAll(List.of(driverId));
+    }
+
+    /**
+     * Drop drivers from this node's index and from every other node's.
+     */
+    public void removeAll(Collection<Long> driverIds) {
+        if (!isEnabled() || driverIds.isEmpty()) {
+            return;
+        }
+        driverIds.forEach(index::remove);
+        String ids = driverIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            redisTemplate.convertAndSend(REMOVE_CHANNEL, nodeId + " " + ids);
+        } catch (DataAccessException e) {
+            // Other nodes drop them once they age out
+            System.err.println("[LocalDriverIndex] Could not broadcast removal of " + ids + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The k closest drivers within maxRadiusKm accepted by the filter, closest first.
+     */
+    public List<SpatialGridIndex.Hit> nearest(double lat, double lng, int k, double maxRadiusKm,
+            LongPredicate filter) {
+        return index.nearest(lat, lng, k, maxRadiusKm, filter);
+    }
+
+    public List<SpatialGridIndex.Hit> withinRadius(double lat, double lng, double radiusKm, int limit,
+            LongPredicate filter) {
+        return index.withinRadius(lat, lng, radiusKm, limit, filter);
+    }
+
+    // Message: "{nodeId} {driverId},{driverId},..."
+    private void onRemove(String message) {
+        int space = message.indexOf(' ');
+        if (space < 0 || message.substring(0, space).equals(nodeId)) {
+            return;
+        }
+        for (String id : message.substring(space + 1).split(",")) {
+            try {
+                index.remove(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                System.err.println("[LocalDriverIndex] Ignoring bad removal id: " + id);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.skygo.service;
+
+import com.skygo.geo.GeoUtils;
+import com.skygo.model.dto.LocationPoint;
+import com.skygo.tracking.LocationFrameCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes driver location updates to STOMP destinations.
+ *
+ * /topic/driver/{id}          the driver's own channel (order tracking)
+ * /topic/tiles/{z}/{x}/{y}    web-mercator tiles at tracking.tiles.zooms; map
+ *                             clients subscribe to the tiles of their viewport
+ * /topic/drivers              whole fleet, only if tracking.broadcast.global
+ *
+ * Updates are not sent immediately. A dead-band drops moves shorter than
+ * tracking.broadcast.deadband-meters (unless the heading turned or the driver
+ * has been silent for max-silence-ms); what passes is conflated to the latest
+ * point per driver and flushed per destination group: fleet-interval-ms for
+ * tiles and /topic/drivers, driver-interval-ms for /topic/driver/{id}.
+ *
+ * When a driver crosses into another tile the update is also sent to the tile
+ * it left, so viewers of that tile see the marker move out.
+ * Payload is "driverId:lat,lng" on every destination.
+ * Each fleet flush is also recorded as MOVED in the FleetChangeLog.
+ *
+ * With tracking.broadcast.binary each destination also has a /topic/bin/...
+ * twin carrying LocationFrameCodec messages; on tile and fleet twins all
+ * drivers of one flush go out as a single message.
+ */
+@Service
+public class LocationBroadcaster {
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FleetChangeLog fleetChangeLog;
+
+    @Value("${tracking.tiles.zooms:12,14}")
+    private List<Integer> zooms;
+
+    // Legacy whole-fleet topic (admin live map)
+    @Value("${tracking.broadcast.global:true}")
+    private boolean global;
+
+    @Value("${tracking.broadcast.binary:false}")
+    private boolean binary;
+
+    @Value("${tracking.broadcast.deadband-meters:10}")
+    private double deadbandMeters;
+
+    @Value("${tracking.broadcast.deadband-heading-degrees:20}")
+    private double deadbandHeadingDegrees;
+
+    // A parked driver is still re-published this often so maps don't drop it
+    @Value("${tracking.broadcast.max-silence-ms:30000}")
+    private long maxSilenceMs;
+
+    // driverId -> last point that passed the dead-band
+    private final Map<Long, LocationPoint> lastPassed = new ConcurrentHashMap<>();
+
+    // driverId -> latest point waiting for the next flush of each destination group
+    private final Map<Long, LocationPoint> pendingFleet = new ConcurrentHashMap<>();
+    private final Map<Long, LocationPoint> pendingDriver = new ConcurrentHashMap<>();
+
+    // driverId -> tile destinations of the last broadcast, one per zoom
+    private final Map<Long, String[]> lastTiles = new ConcurrentHashMap<>();
+
+    private Counter sent;
+    private Counter conflated;
+    private Counter deadband;
+
+    @PostConstruct
+    public void init() {
+        sent = Counter.builder("skygo.tracking.broadcast").tag("outcome", "sent")
+                .description("STOMP location messages sent").register(meterRegistry);
+        conflated = Counter.builder("skygo.tracking.broadcast").tag("outcome", "conflated")
+                .description("Location updates replaced by a newer one before the flush").register(meterRegistry);
+        deadband = Counter.builder("skygo.tracking.broadcast").tag("outcome", "deadband")
+                .description("Location updates dropped as insignificant moves").register(meterRegistry);
+    }
+
+    public static String tileDestination(int zoom, int x, int y) {
+        return "/topic/tiles/" + zoom + "/" + x + "/" + y;
+    }
+
+    // Binary twin of a /topic/... destination
+    public static String binaryDestination(String destination) {
+        return "/topic/bin/" + destination.substring("/topic/".length());
+    }
+
+    public void broadcast(LocationPoint point) {
+        Long driverId = point.getDriverId();
+        LocationPoint previous = lastPassed.get(driverId);
+        if (previous != null && isInsignificant(previous, point)) {
+            deadband.increment();
+            return;
+        }
+        lastPassed.put(driverId, point);
+
+        // One update counts once, whichever queue (or both) it replaced a point in
+        boolean replacedFleet = pendingFleet.put(driverId, point) != null;
+        boolean replacedDriver = pendingDriver.put(driverId, point) != null;
+        if (replacedFleet || replacedDriver) {
+            conflated.increment();
+        }
+    }
+
+    public void forget(Long driverId) {
+        lastPassed.remove(driverId);
+        pendingFleet.remove(driverId);
+        pendingDriver.remove(driverId);
+        lastTiles.remove(driverId);
+    }
+
+    @Scheduled(fixedRateString = "${tracking.broadcast.fleet-interval-ms:1000}")
+    public void flushFleet() {
+        // binary twin destination -> points of this flush
+        Map<String, List<LocationPoint>> binaryBatches = binary ? new HashMap<>() : null;
+        for (Long driverId : pendingFleet.keySet()) {
+            LocationPoint point = pendingFleet.remove(driverId);
+            if (point != null) {
+                sendToFleet(point, binaryBatches);
+            }
+        }
+        if (binaryBatches != null) {
+            binaryBatches.forEach(this::sendBinary);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${tracking.broadcast.driver-interval-ms:250}")
+    public void flushDriver() {
+        for (Long driverId : pendingDriver.keySet()) {
+            LocationPoint point = pendingDriver.remove(driverId);
+            if (point != null) {
+                String destination = "/topic/driver/" + driverId;
+                send(destination, message(point));
+                if (binary) {
+                    sendBinary(binaryDestination(destination), LocationFrameCodec.encode(point));
+                }
+            }
+        }
+    }
+
+    private void sendToFleet(LocationPoint point, Map<String, List<LocationPoint>> binaryBatches) {
+        String message = message(point);
+        String[] tiles = new String[zooms.size()];
+        for (int i = 0; i < tiles.length; i++) {
+            int zoom = zooms.get(i);
+            tiles[i] = tileDestination(zoom, GeoUtils.tileX(point.getLng(), zoom), GeoUtils.tileY(point.getLat(), zoom));
+        }
+        String[] previous = lastTiles.put(point.getDriverId(), tiles);
+        fleetChangeLog.moved(point);
+
+        for (int i = 0; i < tiles.length; i++) {
+            sendToFleetDestination(tiles[i], message, point, binaryBatches);
+            if (previous != null && i < previous.length && !previous[i].equals(tiles[i])) {
+                sendToFleetDestination(previous[i], message, point, binaryBatches);
+            }
+        }
+        if (global) {
+            sendToFleetDestination("/topic/drivers", message, point, binaryBatches);
+        }
+    }
+
+    private void sendToFleetDestination(String destination, String message, LocationPoint point,
+            Map<String, List<LocationPoint>> binaryBatches) {
+        send(destination, message);
+        if (binaryBatches != null) {
+            binaryBatches.computeIfAbsent(binaryDestination(destination), k -> new ArrayList<>()).add(point);
+        }
+    }
+
+    private void send(String destination, String message) {
+        messagingTemplate.convertAndSend(destination, message);
+        sent.increment();
+    }
+
+    private void sendBinary(String destination, List<LocationPoint> points) {
+        for (int from = 0; from < points.size(); from += LocationFrameCodec.MAX_FRAMES) {
+            List<LocationPoint> chunk = points.subList(from, Math.min(from + LocationFrameCodec.MAX_FRAMES, points.size()));
+            sendBinary(destination, LocationFrameCodec.encode(chunk));
+        }
+    }
+
+    private void sendBinary(String destination, byte[] frames) {
+        // ByteArrayMessageConverter sets content-type application/octet-stream
+        messagingTemplate.convertAndSend(destination, frames);
+        sent.increment();
+    }
+
+    private boolean isInsignificant(LocationPoint previous, LocationPoint point) {
+        if (point.getTimestamp() != null && previous.getTimestamp() != null
+                && point.getTimestamp() - previous.getTimestamp() >= maxSilenceMs) {
+            return false;
+        }
+        if (point.getHeading() != null && previous.getHeading() != null) {
+            double turn = Math.abs(point.getHeading() - previous.getHeading()) % 360;
+            if (Math.min(turn, 360 - turn) >= deadbandHeadingDegrees) {
+                return false;
+            }
+        }
+        double movedMeters = GeoUtils.haversineKm(previous.getLat(), previous.getLng(),
+                point.getLat(), point.getLng()) * 1000;
+        return movedMeters < deadbandMeters;
+    }
+
+    private static String message(LocationPoint point) {
+        return point.getDriverId() + ":" + point.getLat() + "," + point.getLng();
+    }
+}
@@ -0,0 +1,224 @@
+package com.skygo.service;
+
+import com.skygo.kafka.KafkaProducerService;
+import com.skygo.model.Order;
+import com.skygo.model.OrderStatus;
+import com.skygo.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Asynchronous matching stage.
+ *
+ * Order creation only commits the order; matching (Redis geo search, dispatch,
+ * WebSocket and FCM) runs here on virtual threads, bounded by
+ * matching.async.max-inflight. Work that does not fit (stage saturated, node
+ * restarted before matching ran) is picked up by the recovery sweep, which
+ * re-submits REQUESTED orders that are neither being matched nor dispatched.
+ *
+ * The sweep runs on every node, so "not being matched" is decided by a shared
+ * lease, matching:claim:{orderId} in Redis: every submit sets it, the node
+ * matching or dispatching an order keeps renewing it, and a sweep only picks
+ * an order up if it can create the lease (SET NX). The lease lives
+ * recovery-retry-seconds, which is also the back-off before an order whose
+ * candidates all declined is matched again. In kafka mode recovered orders are
+ * re-published to order.created so they still go to their partition owner.
+ */
+@Service
+public class MatchingPipeline {
+
+    private static final String CLAIM_PREFIX = "matching:claim:";
+
+    @Autowired
+    private MatchingService matchingService;
+
+    @Autowired
+    private BatchMatchingService batchMatchingService;
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // local: match on this node; kafka: publish to order.created keyed by area
+    @Value("${matching.pipeline.mode:local}")
+    private String mode;
+
+    @Value("${matching.async.max-inflight:256}")
+    private int maxInflight;
+
+    // Orders older than this are left for the user to cancel or retry
+    @Value("${matching.async.recovery-max-age-seconds:600}")
+    private long recoveryMaxAgeSeconds;
+
+    @Value("${matching.async.recovery-min-age-seconds:5}")
+    private long recoveryMinAgeSeconds;
+
+    // Lease of a submitted order; also the back-off before an order whose candidates all declined is matched again
+    @Value("${matching.async.recovery-retry-seconds:30}")
+    private long recoveryRetrySeconds;
+
+    private final Map<Long, Boolean> inflight = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    private Timer matchLatency;
+    private Counter saturated;
+    private Counter recovered;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        permits = new Semaphore(maxInflight);
+
+        matchLatency = Timer.builder("skygo.matching.pipeline.latency")
+                .description("Time to rank and dispatch one order")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        saturated = Counter.builder("skygo.matching.pipeline.saturated")
+                .description("Orders deferred to the recovery sweep because the stage was full")
+                .register(meterRegistry);
+        recovered = Counter.builder("skygo.matching.pipeline.recovered")
+                .description("REQUESTED orders re-submitted by the recovery sweep")
+                .register(meterRegistry);
+        Gauge.builder("skygo.matching.pipeline.inflight", inflight, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Entry point for a freshly committed order. In kafka mode the order is
+     * published keyed by pickup area so the partition owner matches it.
+     */
+    public void onOrderCreated(Order order) {
+        if ("kafka".equalsIgnoreCase(mode)) {
+            kafkaProducerService.sendOrderCreated(order);
+        } else {
+            submit(order);
+        }
+    }
+
+    /**
+     * Hand an order to matching without blocking the caller.
+     * Returns false if the stage is saturated; the recovery sweep will retry it.
+     */
+    public boolean submit(Order order) {
+        if (batchMatchingService.isEnabled()) {
+            renewClaim(order.getId());
+            batchMatchingService.enqueue(order);
+            return true;
+        }
+
+        Long orderId = order.getId();
+        if (inflight.putIfAbsent(orderId, Boolean.TRUE) != null) {
+            return true;
+        }
+        if (!permits.tryAcquire()) {
+            inflight.remove(orderId);
+            saturated.increment();
+            System.out.println("[MatchingPipeline] Saturated, order " + orderId + " deferred to recovery sweep");
+            return false;
+        }
+        renewClaim(orderId);
+
+        executor.execute(() -> {
+            try {
+                matchLatency.record(() -> matchingService.findDrivers(order));
+            } catch (Exception e) {
+                System.err.println("[MatchingPipeline] Matching failed for order " + orderId + ": " + e.getMessage());
+            } finally {
+                inflight.remove(orderId);
+                permits.release();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Orders taken by this node and not matched yet: in flight, or waiting for
+     * the batch window when batch matching is on.
+     */
+    public int pendingCount() {
+        return inflight.size() + batchMatchingService.pendingCount();
+    }
+
+    @Scheduled(fixedDelayString = "${matching.async.recovery-interval-ms:10000}")
+    public void recoverStuckOrders() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            for (Order order : orderRepository.findByStatusAndCreatedAtBetween(OrderStatus.REQUESTED,
+                    now.minusSeconds(recoveryMaxAgeSeconds), now.minusSeconds(recoveryMinAgeSeconds))) {
+                Long orderId = order.getId();
+                if (inflight.containsKey(orderId) || dispatchService.isDispatching(orderId)
+                        || batchMatchingService.isPending(orderId)) {
+                    // Matched here or dispatched by any node: keep other nodes' sweeps away
+                    renewClaim(orderId);
+                    continue;
+                }
+                if (!tryClaim(orderId)) {
+                    continue;
+                }
+                if ("kafka".equalsIgnoreCase(mode)) {
+                    kafkaProducerService.sendOrderCreated(order);
+                } else if (!submit(order)) {
+                    releaseClaim(orderId);
+                    return;
+                }
+                recovered.increment();
+            }
+        } catch (DataAccessException e) {
+            // Without the shared lease a sweep could re-submit orders other nodes are matching
+            System.err.println("[MatchingPipeline] Recovery sweep skipped: " + e.getMessage());
+        }
+    }
+
+    private boolean tryClaim(Long orderId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(CLAIM_PREFIX + orderId, "1",
+                Duration.ofSeconds(recoveryRetrySeconds)));
+    }
+
+    private void renewClaim(Long orderId) {
+        try {
+            redisTemplate.opsForValue().set(CLAIM_PREFIX + orderId, "1", Duration.ofSeconds(recoveryRetrySeconds));
+        } catch (DataAccessException e) {
+            System.err.println("[MatchingPipeline] Could not renew matching lease of order " + orderId + ": "
+                    + e.getMessage());
+        }
+    }
+
+    private void releaseClaim(Long orderId) {
+        redisTemplate.delete(CLAIM_PREFIX + orderId);
+    }
+}
@@ -1,135 +1,217 @@
 package com.skygo.service;
 
+import com.skygo.config.MatchingProperties;
+import com.skygo.geo.SpatialGridIndex;
+import com.skygo.model.DriverAvailability;
+import com.skygo.model.DriverSnapshot;
 import com.skygo.model.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.geo.Circle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.geo.Distance;
-import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.GeoResult;
 import org.springframework.data.geo.Metrics;
-import org.springframework.data.geo.Point;
 import org.springframework.data.redis.connection.RedisGeoCommands;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.redis.domain.geo.GeoShape;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class MatchingService {
 
         @Autowired
-        private RedisTemplate<String, String> redisTemplate;
+        private DriverSnapshotCache driverSnapshotCache;
 
         @Autowired
-        private SimpMessagingTemplate messagingTemplate;
+        private DispatchService dispatchService;
 
         @Autowired
-        private FcmService fcmService;
+        private MatchingProperties matchingProperties;
 
-        // In a real app, this should be in a separate Service/Repository to get Driver
-        // entity by ID
-        // or we cache the token in Redis too.
         @Autowired
-        private com.skygo.repository.DriverRepository driverRepository;
+        private DriverGeoIndex driverGeoIndex;
 
-        private static final String GEO_KEY = "drivers:online";
+        @Autowired
+        private LocalDriverIndex localDriverIndex;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Value("${matching.dispatch.max-candidates:10}")
+        private int maxCandidates;
+
+        private DistributionSummary ringsPerSearch;
+        private Counter redisSearches;
+        private Counter localSearches;
+
+        @PostConstruct
+        public void init() {
+                ringsPerSearch = DistributionSummary.builder("skygo.matching.search.rings")
+                                .description("Number of radius rings searched per match")
+                                .register(meterRegistry);
+                redisSearches = Counter.builder("skygo.matching.search").tag("source", "redis")
+                                .register(meterRegistry);
+                localSearches = Counter.builder("skygo.matching.search").tag("source", "local")
+                                .register(meterRegistry);
+        }
 
         /**
-         * Find the CLOSEST driver to the pickup location and send notification ONLY to
-         * that driver.
+         * Rank the eligible drivers near the pickup location (closest first) and hand
+         * them to the dispatch engine, which offers the order to one driver at a time
+         * and cascades on timeout or reject.
          * Gojek-style: one driver at a time, sorted by distance (ascending).
          */
         public void findDrivers(Order order) {
-                // Radius 3 KM
-                Point pickupPoint = new Point(order.getPickupLng(), order.getPickupLat());
-                Distance radius = new Distance(3.0, Metrics.KILOMETERS);
-                Circle circle = new Circle(pickupPoint, radius);
+                List<Long> candidates = rankCandidates(order);
+                System.out.println("[MatchingService] " + candidates.size() + " eligible driver(s) for order "
+                                + order.getId() + ": " + candidates);
+                dispatchService.dispatch(order, candidates);
+        }
 
-                RedisGeoCommands.GeoRadiusCommandArgs args = RedisGeoCommands.GeoRadiusCommandArgs
-                                .newGeoRadiusArgs()
-                                .includeDistance()
-                                .sortAscending(); // Closest first
+        /**
+         * Eligible drivers around the pickup, closest first, capped at
+         * matching.dispatch.max-candidates.
+         *
+         * Searches expanding rings (matching.search.rings-km per service type), each
+         * one a GEOSEARCH bounded by COUNT/ANY, and stops at the first ring that
+         * yields matching.search.min-candidates eligible drivers.
+         */
+        public List<Long> rankCandidates(Order order) {
+                return new ArrayList<>(rankCandidatesWithDistance(order).keySet());
+        }
 
-                System.out.println("[MatchingService] Searching CLOSEST driver near pickup: lat=" + order.getPickupLat()
-                                + ", lng=" + order.getPickupLng() + " within 3km radius");
+        /**
+         * Same as rankCandidates, keyed by driver id with the pickup distance in KM
+         * reported by GEOSEARCH WITHDIST (used as assignment cost by batch matching).
+         */
+        public LinkedHashMap<Long, Double> rankCandidatesWithDistance(Order order) {
+                if (localDriverIndex.isPrimary()) {
+                        return rankFromLocalIndex(order);
+                }
+                try {
+                        return rankFromRedis(order);
+                } catch (DataAccessException e) {
+                        if (!localDriverIndex.isEnabled()) {
+                                throw e;
+                        }
+                        System.err.println("[MatchingService] Redis search failed for order " + order.getId()
+                                        + ", using local index: " + e.getMessage());
+                        return rankFromLocalIndex(order);
+                }
+        }
 
-                GeoResults<RedisGeoCommands.GeoLocation<String>> results = redisTemplate.opsForGeo().radius(GEO_KEY,
-                                circle,
-                                args);
+        private LinkedHashMap<Long, Double> rankFromRedis(Order order) {
+                redisSearches.increment();
+                List<Double> rings = matchingProperties.ringsFor(order.getServiceType());
 
-                if (results == null || results.getContent().isEmpty()) {
-                        System.out.println("[MatchingService] NO drivers found in Redis Geo within 3km radius. "
-                                        + "Make sure drivers are ONLINE and sending location updates.");
-                        return;
-                }
+                RedisGeoCommands.GeoSearchCommandArgs args = RedisGeoCommands.GeoSearchCommandArgs
+                                .newGeoSearchArgs()
+                                .includeDistance()
+                                .sortAscending() // Closest first
+                                .limit(matchingProperties.getCountPerRing(), matchingProperties.isAny());
+
+                LinkedHashMap<Long, Double> candidates = new LinkedHashMap<>();
+                Set<String> seen = new HashSet<>();
+                int ringsSearched = 0;
+
+                for (Double ringKm : rings) {
+                        ringsSearched++;
+                        // Only ONLINE drivers of the requested service type are searched; rings
+                        // near a region border also cover the neighbouring region(s)
+                        for (GeoResult<RedisGeoCommands.GeoLocation<String>> result : driverGeoIndex.search(
+                                        order.getServiceType(), order.getPickupLat(), order.getPickupLng(),
+                                        GeoShape.byRadius(new Distance(ringKm, Metrics.KILOMETERS)), ringKm, args,
+                                        matchingProperties.getCountPerRing())) {
+                                String member = result.getContent().getName();
+                                // Inner rings were already evaluated
+                                if (!seen.add(member)) {
+                                        continue;
+                                }
+                                Long driverId = Long.parseLong(member);
+                                if (isEligible(order, driverId) && candidates.size() < maxCandidates) {
+                                        candidates.put(driverId, result.getDistance().getValue());
+                                }
+                        }
 
-                List<String> nearbyDrivers = results.getContent().stream()
-                                .map(res -> res.getContent().getName())
-                                .collect(Collectors.toList());
+                        if (candidates.size() >= matchingProperties.getMinCandidates()) {
+                                System.out.println("[MatchingService] Ring " + ringKm + "km satisfied order "
+                                                + order.getId() + " with " + candidates.size() + " candidate(s)");
+                                break;
+                        }
+                }
 
-                System.out.println("[MatchingService] Found " + nearbyDrivers.size() + " nearby driver(s) in Redis: "
-                                + nearbyDrivers);
+                ringsPerSearch.record(ringsSearched);
+                if (candidates.isEmpty()) {
+                        System.out.println("[MatchingService] NO eligible drivers within " + rings.get(rings.size() - 1)
+                                        + "km of pickup lat=" + order.getPickupLat() + ", lng=" + order.getPickupLng()
+                                        + ". Make sure drivers are ONLINE and sending location updates.");
+                }
+                return candidates;
+        }
 
-                // Find the CLOSEST matching driver (first valid one in sorted list)
-                for (String driverIdStr : nearbyDrivers) {
-                        Long driverId = Long.parseLong(driverIdStr);
+        /**
+         * k-nearest search on the in-process index, bounded by the outermost ring.
+         * The index holds every tracked driver, so eligibility is applied as a
+         * filter while cells are scanned.
+         */
+        private LinkedHashMap<Long, Double> rankFromLocalIndex(Order order) {
+                localSearches.increment();
+                List<Double> rings = matchingProperties.ringsFor(order.getServiceType());
+                double maxRadiusKm = rings.get(rings.size() - 1);
+
+                LinkedHashMap<Long, Double> candidates = new LinkedHashMap<>();
+                for (SpatialGridIndex.Hit hit : localDriverIndex.nearest(order.getPickupLat(), order.getPickupLng(),
+                                maxCandidates, maxRadiusKm,
+                                id -> ineligibleReason(order, driverSnapshotCache.get(id)) == null)) {
+                        candidates.put(hit.id(), hit.distanceKm());
+                }
 
-                        var driverOpt = driverRepository.findById(driverId);
-                        if (driverOpt.isEmpty()) {
-                                System.out.println(
-                                                "[MatchingService] Skipping driver " + driverId + " - not found in DB");
-                                continue;
-                        }
+                if (candidates.isEmpty()) {
+                        System.out.println("[MatchingService] NO eligible drivers in local index within " + maxRadiusKm
+                                        + "km of pickup lat=" + order.getPickupLat() + ", lng=" + order.getPickupLng());
+                }
+                return candidates;
+        }
 
-                        var driver = driverOpt.get();
+        private boolean isEligible(Order order, Long driverId) {
+                String reason = ineligibleReason(order, driverSnapshotCache.get(driverId));
+                if (reason != null) {
+                        System.out.println("[MatchingService] Skipping driver " + driverId + " - " + reason);
+                        return false;
+                }
+                return true;
+        }
 
-                        // Filter by Vehicle Type (if specified in order)
-                        if (order.getServiceType() != null &&
-                                        !order.getServiceType().equalsIgnoreCase(driver.getVehicleType())) {
-                                System.out.println("[MatchingService] Skipping driver " + driverId
-                                                + " - vehicle type mismatch (order=" + order.getServiceType()
-                                                + ", driver=" + driver.getVehicleType() + ")");
-                                continue;
-                        }
+        private String ineligibleReason(Order order, DriverSnapshot driver) {
+                if (driver == null) {
+                        return "not found in DB";
+                }
 
-                        // Check FCM token
-                        if (driver.getFcmToken() == null || driver.getFcmToken().isEmpty()) {
-                                System.out.println("[MatchingService] Skipping driver " + driverId
-                                                + " - no FCM token, cannot send notification");
-                                continue;
-                        }
+                // Skip drivers that are on a trip or went offline
+                if (driver.getAvailability() != DriverAvailability.ONLINE) {
+                        return "not available (" + driver.getAvailability() + ")";
+                }
 
-                        // This is the closest valid driver — send notification ONLY to this one
-                        System.out.println("[MatchingService] Selected CLOSEST driver " + driverId
-                                        + " (token="
-                                        + driver.getFcmToken().substring(0, Math.min(10, driver.getFcmToken().length()))
-                                        + "..."
-                                        + ") for order " + order.getId());
-
-                        // Send Order Request to Driver via WebSocket
-                        messagingTemplate.convertAndSend("/topic/driver/" + driverIdStr + "/orders", order);
-
-                        // Send FCM notification
-                        java.util.Map<String, String> data = new java.util.HashMap<>();
-                        data.put("orderId", String.valueOf(order.getId()));
-                        data.put("pickupAddress", order.getPickupAddress());
-                        data.put("destinationAddress", order.getDestinationAddress());
-                        data.put("price", String.valueOf(order.getEstimatedPrice()));
-                        data.put("distance", String.valueOf(order.getDistanceKm()));
-
-                        fcmService.sendNotification(
-                                        driver.getFcmToken(),
-                                        "New Order Available!",
-                                        "Pickup at: " + order.getPickupAddress(),
-                                        data);
-
-                        System.out.println("[MatchingService] Notification sent to closest driver " + driverId
-                                        + " for order " + order.getId());
-                        return; // Done — only notify the closest driver
+                // Filter by Vehicle Type (if specified in order)
+                if (order.getServiceType() != null &&
+                                !order.getServiceType().equalsIgnoreCase(driver.getVehicleType())) {
+                        return "vehicle type mismatch (order=" + order.getServiceType()
+                                        + ", driver=" + driver.getVehicleType() + ")";
                 }
 
-                System.out.println("[MatchingService] No eligible driver found for order " + order.getId()
-                                + " (all nearby drivers were filtered out)");
+                // Check FCM token
+                if (!driver.hasFcmToken()) {
+                        return "no FCM token, cannot send notification";
+                }
+                return null;
         }
 }
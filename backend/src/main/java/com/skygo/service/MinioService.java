@@ -1,17 +1,25 @@
 package com.skygo.service;
 
 import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
+import io.minio.Result;
 import io.minio.SetBucketPolicyArgs;
+import io.minio.messages.Item;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -26,6 +34,10 @@ public class MinioService {
     @Value("${minio.url}")
     private String minioUrl;
 
+    // No public policy: trip trails and other internal objects
+    @Value("${minio.private-bucket-name:skygo-private}")
+    private String privateBucketName;
+
     @PostConstruct
     public void init() {
         try {
@@ -61,6 +73,15 @@ public class MinioService {
         } catch (Exception e) {
             System.err.println("Warning: Could not initialize MinIO bucket: " + e.getMessage());
         }
+
+        try {
+            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(privateBucketName).build())) {
+                minioClient.makeBucket(MakeBucketArgs.builder().bucket(privateBucketName).build());
+                System.out.println("MinIO bucket '" + privateBucketName + "' created (private).");
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Could not initialize MinIO private bucket: " + e.getMessage());
+        }
     }
 
     public String uploadFile(MultipartFile file, String folder) {
@@ -92,4 +113,50 @@ public class MinioService {
             throw new RuntimeException("Error uploading file to MinIO: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Store bytes under the given name in the private bucket.
+     */
+    public void putPrivateObject(String objectName, byte[] data, String contentType) {
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(privateBucketName)
+                            .object(objectName)
+                            .stream(new ByteArrayInputStream(data), data.length, -1)
+                            .contentType(contentType)
+                            .build());
+        } catch (Exception e) {
+            throw new RuntimeException("Error uploading object to MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Names of the private objects under a prefix, in lexicographic order.
+     */
+    public List<String> listPrivateObjects(String prefix) {
+        try {
+            List<String> names = new ArrayList<>();
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(privateBucketName).prefix(prefix).recursive(true).build())) {
+                names.add(result.get().objectName());
+            }
+            Collections.sort(names);
+            return names;
+        } catch (Exception e) {
+            throw new RuntimeException("Error listing objects in MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Open a private object for streaming; the caller closes the stream.
+     */
+    public InputStream getPrivateObject(String objectName) {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder().bucket(privateBucketName).object(objectName).build());
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading object from MinIO: " + e.getMessage(), e);
+        }
+    }
 }
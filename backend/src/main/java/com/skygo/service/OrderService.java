@@ -1,9 +1,15 @@
 package com.skygo.service;
 
+import com.skygo.config.KafkaConfig;
+import com.skygo.exception.OrderStateConflictException;
+import com.skygo.geo.GeoUtils;
+import com.skygo.model.DriverAvailability;
 import com.skygo.model.Order;
 import com.skygo.model.OrderStatus;
 import com.skygo.model.User;
 import com.skygo.model.dto.CreateOrderRequest;
+import com.skygo.model.dto.OrderSummary;
+import com.skygo.model.dto.OrderView;
 import com.skygo.model.Driver;
 import com.skygo.repository.DriverRepository;
 import com.skygo.repository.OrderRepository;
@@ -14,6 +20,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Set;
+
 @Service
 public class OrderService {
 
@@ -24,7 +33,13 @@ public class OrderService {
     private UserRepository userRepository;
 
     @Autowired
-    private MatchingService matchingService;
+    private MatchingPipeline matchingPipeline;
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    private BatchMatchingService batchMatchingService;
 
     @Autowired
     private DriverRepository driverRepository;
@@ -33,14 +48,23 @@ public class OrderService {
     private DriverService driverService;
 
     @Autowired
-    private org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private OutboxService outboxService;
 
     @Autowired
-    private FcmService fcmService;
+    private OrderViewCache orderViewCache;
 
     @Autowired
     private GlobalConfigService configService;
 
+    @Autowired
+    private ActiveTripRegistry activeTripRegistry;
+
+    @Autowired
+    private TripTrailService tripTrailService;
+
+    @Autowired
+    private TripOdometer tripOdometer;
+
     // Simple pricing strategy
     private double calculatePrice(double distanceKm) {
         return 10000 + (distanceKm * 2000);
@@ -48,14 +72,7 @@ public class OrderService {
 
     // Haversine Formula for distance
     public double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of the earth in km
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                        * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+        return GeoUtils.haversineKm(lat1, lon1, lat2, lon2);
     }
 
     public com.skygo.model.dto.FareEstimateResponse getFareEstimate(com.skygo.model.dto.FareEstimateRequest request) {
@@ -94,80 +111,150 @@ public class OrderService {
 
         Order saved = orderRepository.save(order);
 
-        // Trigger driver matching directly
-        matchingService.findDrivers(saved);
+        // Match asynchronously once the order is committed; the request returns right away
+        OrderView view = OrderView.of(saved);
+        AfterCommit.run(() -> {
+            orderViewCache.put(view);
+            matchingPipeline.onOrderCreated(saved);
+        });
 
         return saved;
     }
 
     @Transactional
     public Order acceptOrder(Long orderId, String driverEmail) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        // Check order is still available (replaces Camunda task query)
-        if (order.getStatus() != OrderStatus.REQUESTED) {
-            throw new RuntimeException("Order is not available for acceptance (already taken or cancelled)");
-        }
-
         Driver driver = driverRepository.findByEmail(driverEmail)
                 .orElseThrow(() -> new RuntimeException("Driver not found"));
 
-        // Update order
-        order.setDriver(driver);
-        order.setStatus(OrderStatus.ACCEPTED);
+        // REQUESTED -> ACCEPTED in one conditional UPDATE; of two drivers accepting at once only one wins
+        if (orderRepository.accept(orderId, driver, LocalDateTime.now()) == 0) {
+            OrderStatus current = orderRepository.findStatusById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            throw new OrderStateConflictException(
+                    "Order is not available for acceptance (already " + current + ")");
+        }
 
         // Update Driver Status to ON_TRIP
-        driverService.setDriverAvailability(driver.getId(), false);
+        driverService.setDriverAvailability(driver.getId(), DriverAvailability.ON_TRIP);
 
-        Order saved = orderRepository.save(order);
-
-        // Notify User via WebSocket
-        messagingTemplate.convertAndSend("/topic/user/" + order.getUser().getId() + "/orders", saved);
+        // The notifications need the user and driver of the updated row: one SELECT, both joined
+        Order saved = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        // Notify User via FCM
-        fcmService.sendNotification(
-                order.getUser().getFcmToken(),
+        // Once committed: stop cascading offers to other drivers and start attributing
+        // the driver's location updates to this trip
+        Long driverId = driver.getId();
+        OrderView view = OrderView.of(saved);
+        AfterCommit.run(() -> {
+            dispatchService.accepted(orderId, driverId);
+            orderViewCache.put(view);
+            activeTripRegistry.track(saved);
+        });
+
+        // Notify User via WebSocket and FCM, and publish the event; sent by OutboxRelay after commit
+        outboxService.webSocket(orderId, "/topic/user/" + saved.getUser().getId() + "/orders", view);
+        outboxService.fcm(orderId,
+                saved.getUser().getFcmToken(),
                 "Driver Found!",
                 "Driver " + driver.getName() + " is on the way.");
+        outboxService.kafka(orderId, KafkaConfig.ORDER_ACCEPTED_TOPIC, saved);
 
         return saved;
     }
 
+    /**
+     * Driver declined the offer; the dispatch engine moves on to the next candidate.
+     */
+    public void rejectOrder(Long orderId, Long driverId) {
+        if (!dispatchService.reject(orderId, driverId)) {
+            throw new RuntimeException("Driver " + driverId + " has no pending offer for order " + orderId);
+        }
+    }
+
     public java.util.List<Order> getAvailableOrders() {
         return orderRepository.findByStatusOrderByCreatedAtDesc(OrderStatus.REQUESTED);
     }
 
-    public Page<Order> getAvailableOrders(Pageable pageable) {
-        return orderRepository.findByStatus(OrderStatus.REQUESTED, pageable);
+    public Page<OrderSummary> getAvailableOrders(Pageable pageable) {
+        return orderRepository.findSummariesByStatus(OrderStatus.REQUESTED, pageable);
     }
 
+    /**
+     * Move an order to newStatus if OrderStatus allows it from the current status.
+     * The check and the write are one conditional UPDATE; an order that is no
+     * longer in an allowed status raises OrderStateConflictException.
+     */
+    @Transactional
     public Order updateStatus(Long orderId, OrderStatus newStatus) {
-        Order order = orderRepository.findById(orderId)
+        Set<OrderStatus> from = OrderStatus.allowedFrom(newStatus);
+        if (from.isEmpty()) {
+            throw new RuntimeException("Orders cannot be moved to " + newStatus);
+        }
+
+        int updated;
+        if (newStatus == OrderStatus.COMPLETED) {
+            // Fare from the metered route; straight-line estimate if nothing was metered.
+            // The meter is only read here and dropped after commit, so a rejected completion keeps it
+            Double meteredKm = tripOdometer.meteredKm(orderId);
+            updated = orderRepository.complete(orderId, from, meteredKm,
+                    meteredKm != null ? calculatePrice(meteredKm) : null, LocalDateTime.now());
+        } else {
+            updated = orderRepository.transition(orderId, from, newStatus, LocalDateTime.now());
+        }
+        if (updated == 0) {
+            OrderStatus current = orderRepository.findStatusById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            throw new OrderStateConflictException("Order " + orderId + " is " + current
+                    + " and cannot be moved to " + newStatus);
+        }
+
+        // The notifications need the user and driver of the updated row: one SELECT, both joined
+        Order saved = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        order.setStatus(newStatus);
-        Order saved = orderRepository.save(order);
+        // Terminal states leave a tombstone in the view cache
+        OrderView view = OrderView.of(saved);
+        AfterCommit.run(() -> {
+            orderViewCache.put(view);
+            activeTripRegistry.track(saved);
+            if (newStatus == OrderStatus.ONGOING) {
+                tripOdometer.start(orderId);
+            }
+            if (newStatus == OrderStatus.COMPLETED || newStatus == OrderStatus.CANCELLED) {
+                tripOdometer.discard(orderId);
+                tripTrailService.finish(orderId);
+            }
+            if (newStatus == OrderStatus.CANCELLED) {
+                batchMatchingService.discard(orderId);
+                dispatchService.cancel(orderId);
+            }
+        });
 
-        // Notify User
-        messagingTemplate.convertAndSend("/topic/user/" + order.getUser().getId() + "/orders", saved);
+        if (newStatus == OrderStatus.CANCELLED) {
+            // Release a driver that had already accepted
+            if (saved.getDriver() != null) {
+                driverService.setDriverAvailability(saved.getDriver().getId(), DriverAvailability.ONLINE);
+            }
+        }
 
-        // Notify User via FCM
-        fcmService.sendNotification(
-                order.getUser().getFcmToken(),
+        // Notify User via WebSocket and FCM, and publish the event; sent by OutboxRelay after commit
+        outboxService.webSocket(orderId, "/topic/user/" + saved.getUser().getId() + "/orders", view);
+        outboxService.fcm(orderId,
+                saved.getUser().getFcmToken(),
                 "Order Update",
                 "Status is now: " + newStatus);
+        outboxService.kafka(orderId, KafkaConfig.ORDER_STATUS_TOPIC, saved);
 
         if (newStatus == OrderStatus.COMPLETED) {
             // Unlock driver
-            if (order.getDriver() != null) {
-                driverService.setDriverAvailability(order.getDriver().getId(), true);
+            if (saved.getDriver() != null) {
+                driverService.setDriverAvailability(saved.getDriver().getId(), true);
             }
 
             // Award Points
             int pointsPerOrder = configService.getPointsPerOrder();
             if (pointsPerOrder > 0) {
-                User user = order.getUser();
+                User user = saved.getUser();
                 user.setPoints((user.getPoints() == null ? 0 : user.getPoints()) + pointsPerOrder);
                 userRepository.save(user);
             }
@@ -184,14 +271,21 @@ public class OrderService {
         }
     }
 
-    public Page<Order> getOrderHistory(Long userId, String role, Pageable pageable) {
+    public Page<OrderSummary> getOrderHistory(Long userId, String role, Pageable pageable) {
         if ("DRIVER".equalsIgnoreCase(role)) {
-            return orderRepository.findByDriverId(userId, pageable);
+            return orderRepository.findSummariesByDriverId(userId, pageable);
         } else {
-            return orderRepository.findByUserId(userId, pageable);
+            return orderRepository.findSummariesByUserId(userId, pageable);
         }
     }
 
+    /**
+     * Order detail for the apps, served from OrderViewCache while the order is active.
+     */
+    public OrderView getOrderView(Long orderId) {
+        return orderViewCache.get(orderId);
+    }
+
     public Order getOrderDetails(Long orderId) {
         return orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
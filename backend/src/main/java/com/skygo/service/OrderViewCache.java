@@ -0,0 +1,207 @@
+package com.skygo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skygo.model.OrderStatus;
+import com.skygo.model.dto.OrderView;
+import com.skygo.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-through Redis cache of active orders (REQUESTED .. ONGOING) as OrderView,
+ * for the apps polling GET /api/orders/{id} during a trip.
+ *
+ * order:view:{id} is a hash: v = order updatedAt (ms), t = cached at (ms),
+ * json = the view. OrderService writes the new view after every committed
+ * transition; writes carry the version and never replace a newer one, so a
+ * slow read-through or a late after-commit hook cannot bring back an old
+ * state. Terminal states leave a tombstone (json empty) for tombstone-ttl so
+ * such late writes are refused too; reads then go to the database.
+ *
+ * Hit rate: skygo.orders.cache{result}. Staleness: a sample of hits
+ * (verify-sample-rate) is compared against the order's updatedAt in the
+ * database and counted in skygo.orders.cache.stale; skygo.orders.cache.age
+ * records how old served entries are.
+ */
+@Service
+public class OrderViewCache {
+
+    private static final String KEY_PREFIX = "order:view:";
+
+    // KEYS[1] = view key, ARGV[1] = version, ARGV[2] = cached at, ARGV[3] = json ('' = tombstone), ARGV[4] = ttl ms
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('HGET', KEYS[1], 'v') "
+                    + "if v and tonumber(v) > tonumber(ARGV[1]) then return 0 end "
+                    + "redis.call('HSET', KEYS[1], 'v', ARGV[1], 't', ARGV[2], 'json', ARGV[3]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4]) "
+                    + "return 1",
+            Long.class);
+
+    private static final List<OrderStatus> CACHED = List.of(OrderStatus.REQUESTED, OrderStatus.ACCEPTED,
+            OrderStatus.PICKUP, OrderStatus.ONGOING);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${orders.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orders.cache.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Value("${orders.cache.tombstone-ttl-seconds:60}")
+    private long tombstoneTtlSeconds;
+
+    @Value("${orders.cache.verify-sample-rate:0.01}")
+    private double verifySampleRate;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter bypassed;
+    private Counter verified;
+    private Counter stale;
+    private DistributionSummary age;
+
+    @PostConstruct
+    public void init() {
+        hits = result("hit");
+        misses = result("miss");
+        bypassed = result("bypass");
+        verified = Counter.builder("skygo.orders.cache.verified")
+                .description("Cache hits checked against the database")
+                .register(meterRegistry);
+        stale = Counter.builder("skygo.orders.cache.stale")
+                .description("Checked cache hits that were older than the database row")
+                .register(meterRegistry);
+        age = DistributionSummary.builder("skygo.orders.cache.age")
+                .description("Age of served cache entries")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter result(String result) {
+        return Counter.builder("skygo.orders.cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public OrderView get(Long orderId) {
+        if (!enabled) {
+            return load(orderId);
+        }
+
+        List<Object> entry;
+        try {
+            entry = redisTemplate.opsForHash().multiGet(key(orderId), List.of("t", "json"));
+        } catch (DataAccessException e) {
+            System.err.println("[OrderViewCache] Redis read failed for order " + orderId + ": " + e.getMessage());
+            bypassed.increment();
+            return load(orderId);
+        }
+
+        Object json = entry.size() > 1 ? entry.get(1) : null;
+        if (json != null && !json.toString().isEmpty()) {
+            try {
+                OrderView view = objectMapper.readValue(json.toString(), OrderView.class);
+                hits.increment();
+                if (entry.get(0) != null) {
+                    age.record(System.currentTimeMillis() - Long.parseLong(entry.get(0).toString()));
+                }
+                verifySample(view);
+                return view;
+            } catch (Exception e) {
+                System.err.println("[OrderViewCache] Unreadable entry for order " + orderId + ": " + e.getMessage());
+            }
+        }
+
+        OrderView view = load(orderId);
+        if (json != null) {
+            // Tombstone: the order is finished, serve it from the database without caching
+            bypassed.increment();
+        } else {
+            misses.increment();
+            put(view);
+        }
+        return view;
+    }
+
+    /**
+     * Store the view of an order that just changed. Terminal states replace the
+     * entry with a tombstone. Call after commit.
+     */
+    public void put(OrderView view) {
+        if (!enabled || view == null || view.getId() == null) {
+            return;
+        }
+        try {
+            boolean active = CACHED.contains(view.getStatus());
+            String json = active ? objectMapper.writeValueAsString(view) : "";
+            long ttlMs = (active ? ttlSeconds : tombstoneTtlSeconds) * 1000;
+            redisTemplate.execute(PUT_SCRIPT, List.of(key(view.getId())), Long.toString(version(view.getUpdatedAt())),
+                    Long.toString(System.currentTimeMillis()), json, Long.toString(ttlMs));
+        } catch (Exception e) {
+            // Drop the entry rather than leave an older state behind
+            System.err.println("[OrderViewCache] Write failed for order " + view.getId() + ": " + e.getMessage());
+            evict(view.getId());
+        }
+    }
+
+    public void evict(Long orderId) {
+        try {
+            redisTemplate.delete(key(orderId));
+        } catch (DataAccessException e) {
+            System.err.println("[OrderViewCache] Evict failed for order " + orderId + ": " + e.getMessage());
+        }
+    }
+
+    private OrderView load(Long orderId) {
+        return orderRepository.findById(orderId)
+                .map(OrderView::of)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+    }
+
+    private void verifySample(OrderView view) {
+        if (verifySampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= verifySampleRate) {
+            return;
+        }
+        verified.increment();
+        LocalDateTime current = orderRepository.findUpdatedAtById(view.getId());
+        if (version(current) > version(view.getUpdatedAt())) {
+            stale.increment();
+            System.err.println("[OrderViewCache] Stale entry for order " + view.getId() + ", evicting");
+            evict(view.getId());
+        }
+    }
+
+    private static long version(LocalDateTime updatedAt) {
+        return updatedAt != null ? updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+
+    private static String key(Long orderId) {
+        return KEY_PREFIX + orderId;
+    }
+}
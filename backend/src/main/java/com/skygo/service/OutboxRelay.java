@@ -0,0 +1,268 @@
+package com.skygo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skygo.model.Order;
+import com.skygo.model.OutboxChannel;
+import com.skygo.model.OutboxEvent;
+import com.skygo.model.OutboxStatus;
+import com.skygo.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox table to WebSocket, FCM and Kafka.
+ *
+ * Each poll claims up to batch-size due events (FOR UPDATE SKIP LOCKED, so
+ * several nodes can relay side by side) and leases them by pushing
+ * next_attempt_at lease-ms ahead, in one short transaction. The events are
+ * then sent outside any transaction on parallelism worker threads, one task
+ * per order so an order's events never race each other, and the results are
+ * written back in a second short transaction. A relay that dies mid-batch
+ * leaves its events to be claimed again once the lease runs out (delivery is
+ * at least once).
+ *
+ * A claimed event is always the oldest pending one of its order and channel,
+ * which keeps per-order ordering across batches and nodes. Failures are
+ * retried with exponential back-off up to max-attempts, then marked FAILED;
+ * later events of that order and channel wait until then.
+ *
+ * The poll runs on its own thread, so slow FCM or Kafka sends never hold up
+ * the shared @Scheduled jobs.
+ */
+@Service
+public class OutboxRelay {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private FcmService fcmService;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.relay.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.parallelism:8}")
+    private int parallelism;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.backoff-ms:1000}")
+    private long backoffMs;
+
+    @Value("${outbox.relay.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${outbox.relay.kafka-timeout-ms:5000}")
+    private long kafkaTimeoutMs;
+
+    // Longer than sending one batch can take, or events are sent twice
+    @Value("${outbox.relay.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${outbox.relay.retention-hours:24}")
+    private long retentionHours;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService executor;
+
+    private Timer lag;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(parallelism);
+        lag = Timer.builder("skygo.outbox.lag")
+                .description("Time from outbox write to successful delivery")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdown();
+        executor.shutdown();
+    }
+
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } catch (Exception e) {
+            System.err.println("[OutboxRelay] Drain failed: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.cleanup-interval-ms:3600000}")
+    public void purgeSent() {
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteByStatusAndSentAtBefore(
+                OutboxStatus.SENT, LocalDateTime.now().minusHours(retentionHours)));
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> claim());
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<OutboxEvent>> byOrder = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            byOrder.computeIfAbsent(event.getAggregateId(), k -> new ArrayList<>()).add(event);
+        }
+        List<Future<?>> tasks = new ArrayList<>(byOrder.size());
+        for (List<OutboxEvent> orderEvents : byOrder.values()) {
+            tasks.add(executor.submit(() -> orderEvents.forEach(this::publish)));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (Exception e) {
+                // publish() records its own failures; this only guards against interruption
+                System.err.println("[OutboxRelay] Relay task failed: " + e.getMessage());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> writeResults(events));
+        return events.size();
+    }
+
+    // Short transaction: lock due events, push them out of reach of other relays, commit
+    private List<OutboxEvent> claim() {
+        List<OutboxEvent> events = outboxEventRepository.claimBatch(LocalDateTime.now(), batchSize);
+        if (!events.isEmpty()) {
+            List<Long> ids = new ArrayList<>(events.size());
+            for (OutboxEvent event : events) {
+                ids.add(event.getId());
+            }
+            outboxEventRepository.lease(ids, LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+        }
+        return events;
+    }
+
+    private void writeResults(List<OutboxEvent> events) {
+        List<Long> sent = new ArrayList<>(events.size());
+        LocalDateTime sentAt = null;
+        for (OutboxEvent event : events) {
+            if (event.getStatus() == OutboxStatus.SENT) {
+                sent.add(event.getId());
+                sentAt = sentAt == null || event.getSentAt().isAfter(sentAt) ? event.getSentAt() : sentAt;
+            } else {
+                outboxEventRepository.markFailed(event.getId(), event.getStatus(), event.getAttempts(),
+                        event.getNextAttemptAt(), event.getLastError());
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxEventRepository.markSent(sent, sentAt);
+        }
+    }
+
+    private void publish(OutboxEvent event) {
+        try {
+            switch (event.getChannel()) {
+                // Already JSON: sent as is, not through the message converters
+                case WEBSOCKET -> messagingTemplate.send(event.getDestination(), MessageBuilder.createMessage(
+                        event.getPayload().getBytes(StandardCharsets.UTF_8),
+                        new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON))));
+                case FCM -> {
+                    Map<String, String> notification = objectMapper.readValue(event.getPayload(),
+                            new TypeReference<Map<String, String>>() {
+                            });
+                    fcmService.send(event.getDestination(), notification.get("title"), notification.get("body"),
+                            null);
+                }
+                // Kafka order events carry the Order (JsonSerializer type header), as consumers expect
+                case KAFKA -> kafkaTemplate.send(event.getDestination(), event.getAggregateId().toString(),
+                        objectMapper.readValue(event.getPayload(), Order.class))
+                        .get(kafkaTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            event.setStatus(OutboxStatus.SENT);
+            event.setSentAt(LocalDateTime.now());
+            count(event.getChannel(), "sent");
+            if (event.getCreatedAt() != null) {
+                lag.record(Duration.between(event.getCreatedAt(), event.getSentAt()));
+            }
+        } catch (Exception e) {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (attempts >= maxAttempts) {
+                event.setStatus(OutboxStatus.FAILED);
+                count(event.getChannel(), "failed");
+                System.err.println("[OutboxRelay] Giving up on outbox event " + event.getId() + " ("
+                        + event.getChannel() + ", order " + event.getAggregateId() + "): " + error);
+            } else {
+                long delay = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 20));
+                event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+                count(event.getChannel(), "retry");
+            }
+        }
+    }
+
+    private void count(OutboxChannel channel, String outcome) {
+        Counter.builder("skygo.outbox.published")
+                .tag("channel", channel.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,69 @@
+package com.skygo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skygo.model.OutboxChannel;
+import com.skygo.model.OutboxEvent;
+import com.skygo.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records notifications in the outbox table. Must run inside the transaction of
+ * the change being announced: a rollback drops the notification with it, a
+ * commit hands it to OutboxRelay. Nothing here does network I/O.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void webSocket(Long orderId, String destination, Object payload) {
+        save(orderId, OutboxChannel.WEBSOCKET, destination, toJson(payload));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void fcm(Long orderId, String token, String title, String body) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        Map<String, String> notification = new LinkedHashMap<>();
+        notification.put("title", title);
+        notification.put("body", body);
+        save(orderId, OutboxChannel.FCM, token, toJson(notification));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void kafka(Long orderId, String topic, Object payload) {
+        save(orderId, OutboxChannel.KAFKA, topic, toJson(payload));
+    }
+
+    private void save(Long orderId, OutboxChannel channel, String destination, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateId(orderId);
+        event.setChannel(channel);
+        event.setDestination(destination);
+        event.setPayload(payload);
+        event.setNextAttemptAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize outbox payload: " + e.getMessage(), e);
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class PaymentService {
 
         Payment payment = new Payment();
         payment.setOrder(order);
-        payment.setAmount(order.getEstimatedPrice());
+        payment.setAmount(order.getFinalPrice() != null ? order.getFinalPrice() : order.getEstimatedPrice());
         payment.setPaymentMethod(PaymentMethodType.CASH); // Force CASH or use request.getPaymentMethod() if validates
                                                           // to
         // CASH
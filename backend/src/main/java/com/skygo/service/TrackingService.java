@@ -1,43 +1,177 @@
 package com.skygo.service;
 
+import com.skygo.model.DriverSnapshot;
+import com.skygo.geo.GeoUtils;
+import com.skygo.model.dto.DriverLocation;
+import com.skygo.model.dto.LocationPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.Metrics;
 import org.springframework.data.geo.Point;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.domain.geo.BoundingBox;
+import org.springframework.data.redis.domain.geo.GeoShape;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 @Service
 public class TrackingService {
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private LocationBroadcaster locationBroadcaster;
 
     @Autowired
-    private org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private GeoWriteBuffer geoWriteBuffer;
 
-    private static final String GEO_KEY = "drivers:online";
+    @Autowired
+    private ActiveTripRegistry activeTripRegistry;
+
+    @Autowired
+    private TripTrailService tripTrailService;
+
+    @Autowired
+    private TripOdometer tripOdometer;
+
+    @Autowired
+    private DriverGeoIndex driverGeoIndex;
+
+    @Autowired
+    private DriverSnapshotCache driverSnapshotCache;
+
+    @Autowired
+    private LocalDriverIndex localDriverIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Buffer GEOADDs and flush them in batches (GeoWriteBuffer) instead of writing on the request thread
+    @Value("${tracking.geo-write.write-behind:true}")
+    private boolean writeBehind;
+
+    @Value("${tracking.query.max-results:500}")
+    private int maxQueryResults;
+
+    @Value("${tracking.batch.max-points:1000}")
+    private int maxBatchPoints;
+
+    // Device timestamps further ahead than this are replaced by the receive time
+    @Value("${tracking.max-clock-skew-ms:60000}")
+    private long maxClockSkewMs;
+
+
+    // driverId -> timestamp of the last accepted point
+    private final Map<Long, Long> lastAccepted = new ConcurrentHashMap<>();
+
+    private Counter pointsAccepted;
+    private Counter pointsStale;
+    private Counter pointsInvalid;
+    private DistributionSummary batchSize;
+
+    @PostConstruct
+    public void init() {
+        pointsAccepted = Counter.builder("skygo.tracking.points").tag("outcome", "accepted").register(meterRegistry);
+        pointsStale = Counter.builder("skygo.tracking.points").tag("outcome", "stale").register(meterRegistry);
+        pointsInvalid = Counter.builder("skygo.tracking.points").tag("outcome", "invalid").register(meterRegistry);
+        batchSize = DistributionSummary.builder("skygo.tracking.batch.size")
+                .description("Location points per ingested batch")
+                .register(meterRegistry);
+    }
 
     public void updateDriverLocation(Long driverId, double lat, double lng) {
-        redisTemplate.opsForGeo().add(GEO_KEY, new Point(lng, lat), driverId.toString());
+        ingest(new LocationPoint(driverId, lat, lng));
+    }
+
+    /**
+     * Ingest a single point (REST update, STOMP /app/location).
+     * Returns false if the point was invalid or not newer than the last one.
+     */
+    public boolean ingest(LocationPoint point) {
+        if (!accept(point, System.currentTimeMillis())) {
+            return false;
+        }
+        recordTrip(point);
+        store(List.of(point));
+        locationBroadcaster.broadcast(point);
+        return true;
+    }
+
+    /**
+     * Ingest a batch of location points, possibly from many drivers.
+     *
+     * Points older than the last accepted one of the same driver are dropped.
+     * Only the newest point per driver is kept: it is written to Redis with one
+     * pipelined GEOADD per key and broadcast once. Returns the number of points
+     * accepted.
+     */
+    public int ingest(List<LocationPoint> points) {
+        if (points.size() > maxBatchPoints) {
+            throw new RuntimeException("Batch too large: " + points.size() + " points (max " + maxBatchPoints + ")");
+        }
+        batchSize.record(points.size());
+
+        long now = System.currentTimeMillis();
+        Map<Long, LocationPoint> latest = new LinkedHashMap<>();
+        int accepted = 0;
+        for (LocationPoint point : points) {
+            if (accept(point, now)) {
+                // Trips keep every point, Redis and broadcasts only the newest
+                recordTrip(point);
+                latest.put(point.getDriverId(), point);
+                accepted++;
+            }
+        }
+        if (latest.isEmpty()) {
+            return 0;
+        }
 
-        String message = driverId + ":" + lat + "," + lng;
-        messagingTemplate.convertAndSend("/topic/drivers", message);
-        messagingTemplate.convertAndSend("/topic/driver/" + driverId, message);
+        store(latest.values());
+        for (LocationPoint point : latest.values()) {
+            locationBroadcaster.broadcast(point);
+        }
+        return accepted;
     }
 
     public void removeDriverFromGeo(Long driverId) {
-        redisTemplate.opsForGeo().remove(GEO_KEY, driverId.toString());
+        localDriverIndex.remove(driverId);
+        geoWriteBuffer.discard(List.of(driverId));
+        lastAccepted.remove(driverId);
+        locationBroadcaster.forget(driverId);
+        DriverSnapshot driver = driverSnapshotCache.get(driverId);
+        driverGeoIndex.remove(driverId, driver != null ? driver.getVehicleType() : null);
+    }
+
+    /**
+     * removeDriverFromGeo for many drivers, with one Redis round trip.
+     */
+    public void removeDriversFromGeo(Collection<Long> driverIds) {
+        geoWriteBuffer.discard(driverIds);
+        localDriverIndex.removeAll(driverIds);
+        Map<Long, String> drivers = new HashMap<>();
+        for (Long driverId : driverIds) {
+            lastAccepted.remove(driverId);
+            locationBroadcaster.forget(driverId);
+            DriverSnapshot driver = driverSnapshotCache.get(driverId);
+            drivers.put(driverId, driver != null ? driver.getVehicleType() : null);
+        }
+        driverGeoIndex.removeAll(drivers);
     }
 
     /**
      * Get the current location of a driver from Redis Geo.
      */
     public Map<String, Double> getDriverLocation(Long driverId) {
-        List<org.springframework.data.geo.Point> positions = redisTemplate.opsForGeo()
-                .position(GEO_KEY, driverId.toString());
-        if (positions != null && !positions.isEmpty() && positions.get(0) != null) {
-            org.springframework.data.geo.Point point = positions.get(0);
+        Point point = driverGeoIndex.positions(List.of(driverId)).get(driverId);
+        if (point != null) {
             Map<String, Double> location = new HashMap<>();
             location.put("lat", point.getY());
             location.put("lng", point.getX());
@@ -47,38 +181,141 @@ public class TrackingService {
     }
 
     /**
-     * Get all online driver locations from Redis Geo.
-     * Returns list of maps with driverId, lat, lng.
+     * Positions of the given drivers (one GEOPOS per region they are in).
+     * Drivers without a known position are absent from the map.
      */
-    public List<Map<String, Object>> getAllOnlineDriverLocations() {
-        List<Map<String, Object>> result = new ArrayList<>();
-
-        // Get all members from the geo set
-        Set<String> members = redisTemplate.opsForZSet().range(GEO_KEY, 0, -1);
-        if (members == null || members.isEmpty()) {
-            return result;
-        }
-
-        // Get positions for all members
-        String[] memberArray = members.toArray(new String[0]);
-        List<org.springframework.data.geo.Point> positions = redisTemplate.opsForGeo()
-                .position(GEO_KEY, memberArray);
-
-        if (positions != null) {
-            int i = 0;
-            for (String memberId : memberArray) {
-                if (i < positions.size() && positions.get(i) != null) {
-                    org.springframework.data.geo.Point point = positions.get(i);
-                    Map<String, Object> driverLocation = new HashMap<>();
-                    driverLocation.put("driverId", Long.parseLong(memberId));
-                    driverLocation.put("lat", point.getY());
-                    driverLocation.put("lng", point.getX());
-                    result.add(driverLocation);
-                }
-                i++;
-            }
+    public Map<Long, Point> getDriverPositions(List<Long> driverIds) {
+        if (driverIds.isEmpty()) {
+            return new HashMap<>();
         }
+        return driverGeoIndex.positions(driverIds);
+    }
 
+    /**
+     * Every driver position in Redis Geo (one ZRANGE + one GEOPOS).
+     * Callers that poll should use FleetSnapshotService instead.
+     */
+    public List<DriverLocation> getAllDriverLocations() {
+        List<DriverLocation> result = new ArrayList<>();
+        driverGeoIndex.allPositions().forEach((driverId, point) ->
+                result.add(new DriverLocation(driverId, point.getY(), point.getX())));
         return result;
     }
+
+    /**
+     * Drivers within radiusKm of a point, closest first (GEOSEARCH BYRADIUS).
+     */
+    public List<DriverLocation> findDriversInRadius(double lat, double lng, double radiusKm, int limit) {
+        return search(GeoShape.byRadius(new Distance(radiusKm, Metrics.KILOMETERS)), radiusKm, lat, lng,
+                Math.min(limit, maxQueryResults), null);
+    }
+
+    /**
+     * Drivers inside a lat/lng bounding box, e.g. a map viewport (GEOSEARCH BYBOX).
+     */
+    public List<DriverLocation> findDriversInBox(double minLat, double minLng, double maxLat, double maxLng,
+            int limit) {
+        if (minLat > maxLat || minLng > maxLng) {
+            throw new RuntimeException("Invalid bounding box");
+        }
+        double centerLat = (minLat + maxLat) / 2;
+        double centerLng = (minLng + maxLng) / 2;
+        // Redis boxes are KM wide/high around the center; size them on the box's widest latitude
+        double heightKm = GeoUtils.haversineKm(minLat, centerLng, maxLat, centerLng);
+        double widestLat = minLat <= 0 && maxLat >= 0 ? 0 : Math.abs(minLat) < Math.abs(maxLat) ? minLat : maxLat;
+        double widthKm = GeoUtils.haversineKm(widestLat, minLng, widestLat, maxLng);
+        GeoShape box = GeoShape.byBox(new BoundingBox(widthKm, heightKm, Metrics.KILOMETERS));
+        double reachKm = Math.sqrt(widthKm * widthKm + heightKm * heightKm) / 2;
+        return search(box, reachKm, centerLat, centerLng, Math.min(limit, maxQueryResults),
+                location -> location.getLat() >= minLat && location.getLat() <= maxLat
+                        && location.getLng() >= minLng && location.getLng() <= maxLng);
+    }
+
+    private List<DriverLocation> search(GeoShape shape, double reachKm, double lat, double lng, int limit,
+            Predicate<DriverLocation> filter) {
+        RedisGeoCommands.GeoSearchCommandArgs args = RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs()
+                .includeCoordinates()
+                .includeDistance()
+                .sortAscending()
+                .limit(Math.max(limit, 1));
+
+        List<DriverLocation> locations = new ArrayList<>();
+        for (GeoResult<RedisGeoCommands.GeoLocation<String>> result : driverGeoIndex.search(null, lat, lng, shape,
+                reachKm, args, Math.max(limit, 1))) {
+            Point point = result.getContent().getPoint();
+            DriverLocation location = new DriverLocation(Long.parseLong(result.getContent().getName()),
+                    point.getY(), point.getX());
+            if (filter == null || filter.test(location)) {
+                locations.add(location);
+            }
+        }
+        return locations;
+    }
+
+    private void recordTrip(LocationPoint point) {
+        ActiveTripRegistry.ActiveTrip trip = activeTripRegistry.tripOf(point.getDriverId());
+        if (trip != null) {
+            tripTrailService.append(trip, point);
+            tripOdometer.record(trip, point);
+        }
+    }
+
+    // Validates the point and moves the driver's last accepted timestamp forward
+    private boolean accept(LocationPoint point, long now) {
+        if (!isValid(point)) {
+            pointsInvalid.increment();
+            return false;
+        }
+        Long timestamp = point.getTimestamp();
+        if (timestamp == null || timestamp > now + maxClockSkewMs) {
+            point.setTimestamp(now);
+        }
+        if (!advance(point.getDriverId(), point.getTimestamp())) {
+            pointsStale.increment();
+            return false;
+        }
+        pointsAccepted.increment();
+        return true;
+    }
+
+    private void store(Collection<LocationPoint> points) {
+        for (LocationPoint point : points) {
+            localDriverIndex.update(point.getDriverId(), point.getLat(), point.getLng());
+        }
+        if (writeBehind) {
+            for (LocationPoint point : points) {
+                geoWriteBuffer.offer(point);
+            }
+            return;
+        }
+        try {
+            driverGeoIndex.updateLocations(points);
+        } catch (DataAccessException e) {
+            // Keep tracking (and local-index matching) alive while Redis is unavailable
+            if (!localDriverIndex.isEnabled()) {
+                throw e;
+            }
+            System.err.println("[TrackingService] Redis geo update failed for " + points.size() + " driver(s): "
+                    + e.getMessage());
+        }
+    }
+
+    private static boolean isValid(LocationPoint point) {
+        return point != null && point.getDriverId() != null
+                && point.getLat() != null && point.getLat() >= -90 && point.getLat() <= 90
+                && point.getLng() != null && point.getLng() >= -180 && point.getLng() <= 180;
+    }
+
+    // Moves the driver's last accepted timestamp forward; false if the point is not newer
+    private boolean advance(Long driverId, long timestamp) {
+        boolean[] newer = new boolean[1];
+        lastAccepted.compute(driverId, (id, last) -> {
+            if (last != null && timestamp <= last) {
+                return last;
+            }
+            newer[0] = true;
+            return timestamp;
+        });
+        return newer[0];
+    }
 }
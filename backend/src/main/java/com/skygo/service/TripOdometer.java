@@ -0,0 +1,179 @@
+package com.skygo.service;
+
+import com.skygo.geo.GeoUtils;
+import com.skygo.model.OrderStatus;
+import com.skygo.model.dto.LocationPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Incremental distance meter per ONGOING order, fed by the location ingest path.
+ *
+ * Each point adds the haversine distance from the last counted point. GPS
+ * jitter is filtered: moves under tracking.odometer.min-segment-meters are not
+ * counted yet (they add up once the driver really moves away), and points that
+ * imply more than max-speed-kmh are dropped as jumps. Completing the trip reads
+ * the total in O(1).
+ *
+ * The meter is the Redis hash trip:odometer:{orderId} (la / ln / t = last
+ * counted point, f / l = first / latest point seen, u = time lost in gaps
+ * longer than max-gap-ms, m = meters, s = trip start), updated by one script
+ * per point, so it survives restarts and every ingest node adds to the same
+ * total. A trip whose metered time covers less than min-coverage of its
+ * duration (points lost while no node could meter them) reads as not metered,
+ * so the fare falls back to the estimate instead of undercharging.
+ */
+@Service
+public class TripOdometer {
+
+    private static final String KEY_PREFIX = "trip:odometer:";
+
+    // KEYS[1] = meter; ARGV = lat, lng, timestamp, min segment m, max speed km/h, ttl ms, earth radius m, max gap ms
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "local lat = tonumber(ARGV[1]) local lng = tonumber(ARGV[2]) local t = tonumber(ARGV[3]) "
+                    + "local last = redis.call('HMGET', KEYS[1], 'la', 'ln', 't', 'l') "
+                    + "if not last[1] then "
+                    + "  redis.call('HSET', KEYS[1], 'la', ARGV[1], 'ln', ARGV[2], 't', ARGV[3], 'f', ARGV[3], "
+                    + "    'l', ARGV[3]) "
+                    + "else "
+                    + "  local seen = tonumber(last[4]) "
+                    + "  if t > seen then "
+                    + "    if t - seen > tonumber(ARGV[8]) then redis.call('HINCRBY', KEYS[1], 'u', t - seen) end "
+                    + "    redis.call('HSET', KEYS[1], 'l', ARGV[3]) "
+                    + "  end "
+                    + "  local plat = tonumber(last[1]) local plng = tonumber(last[2]) local pt = tonumber(last[3]) "
+                    + "  local r = math.pi / 180 "
+                    + "  local a = math.sin((lat - plat) * r / 2) ^ 2 "
+                    + "    + math.cos(plat * r) * math.cos(lat * r) * math.sin((lng - plng) * r / 2) ^ 2 "
+                    + "  local meters = 2 * tonumber(ARGV[7]) * math.atan2(math.sqrt(a), math.sqrt(1 - a)) "
+                    + "  local elapsed = t - pt "
+                    + "  if meters >= tonumber(ARGV[4]) and elapsed > 0 "
+                    + "      and meters / elapsed * 3600 <= tonumber(ARGV[5]) then "
+                    + "    redis.call('HINCRBYFLOAT', KEYS[1], 'm', meters) "
+                    + "    redis.call('HSET', KEYS[1], 'la', ARGV[1], 'ln', ARGV[2], 't', ARGV[3]) "
+                    + "  end "
+                    + "end "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[6]) "
+                    + "return 1",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tracking.odometer.min-segment-meters:8}")
+    private double minSegmentMeters;
+
+    @Value("${tracking.odometer.max-speed-kmh:160}")
+    private double maxSpeedKmh;
+
+    // Share of the trip duration the metered span must cover
+    @Value("${tracking.odometer.min-coverage:0.8}")
+    private double minCoverage;
+
+    // Slack for the first points arriving after the trip started
+    @Value("${tracking.odometer.coverage-grace-ms:60000}")
+    private long coverageGraceMs;
+
+    // Silences longer than this count as unmetered time
+    @Value("${tracking.odometer.max-gap-ms:60000}")
+    private long maxGapMs;
+
+    @Value("${tracking.odometer.ttl-hours:12}")
+    private long ttlHours;
+
+    private Counter writeFailures;
+    private Counter partial;
+
+    @PostConstruct
+    public void init() {
+        writeFailures = Counter.builder("skygo.tracking.odometer.write.failures")
+                .description("Location points not metered because Redis was unavailable")
+                .register(meterRegistry);
+        partial = Counter.builder("skygo.tracking.odometer.partial")
+                .description("Completed trips billed at the estimate because the meter had gaps")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Trip went ONGOING: remember when, to check the meter's coverage on completion.
+     */
+    public void start(Long orderId) {
+        try {
+            String key = KEY_PREFIX + orderId;
+            redisTemplate.opsForHash().putIfAbsent(key, "s", Long.toString(System.currentTimeMillis()));
+            redisTemplate.expire(key, Duration.ofHours(ttlHours));
+        } catch (DataAccessException e) {
+            System.err.println("[TripOdometer] Could not start meter of order " + orderId + ": " + e.getMessage());
+        }
+    }
+
+    public void record(ActiveTripRegistry.ActiveTrip trip, LocationPoint point) {
+        if (trip.status() != OrderStatus.ONGOING) {
+            return;
+        }
+        try {
+            redisTemplate.execute(ADD_SCRIPT, List.of(KEY_PREFIX + trip.orderId()),
+                    Double.toString(point.getLat()), Double.toString(point.getLng()),
+                    Long.toString(point.getTimestamp()), Double.toString(minSegmentMeters),
+                    Double.toString(maxSpeedKmh), Long.toString(ttlHours * 3_600_000),
+                    Double.toString(GeoUtils.EARTH_RADIUS_KM * 1000), Long.toString(maxGapMs));
+        } catch (DataAccessException e) {
+            writeFailures.increment();
+        }
+    }
+
+    /**
+     * Metered distance of a trip in KM, or null if nothing was metered or the
+     * meter has gaps. Leaves the meter in place; discard it once the trip is
+     * completed or cancelled.
+     */
+    public Double meteredKm(Long orderId) {
+        List<Object> meter;
+        try {
+            meter = redisTemplate.opsForHash().multiGet(KEY_PREFIX + orderId, List.of("f", "l", "u", "s", "m"));
+        } catch (DataAccessException e) {
+            System.err.println("[TripOdometer] Meter of order " + orderId + " unreadable, billing the estimate: "
+                    + e.getMessage());
+            return null;
+        }
+        if (meter.get(0) == null) {
+            return null;
+        }
+        long first = Long.parseLong(meter.get(0).toString());
+        long latest = Long.parseLong(meter.get(1).toString());
+        long covered = latest - first - (meter.get(2) != null ? Long.parseLong(meter.get(2).toString()) : 0);
+        // Without the start time (trip started before the meter existed) only gaps are checked
+        long duration = meter.get(3) != null
+                ? System.currentTimeMillis() - Long.parseLong(meter.get(3).toString())
+                : latest - first;
+        if (covered + coverageGraceMs < duration * minCoverage) {
+            partial.increment();
+            System.out.println("[TripOdometer] Order " + orderId + " metered for " + covered / 1000 + " s of "
+                    + duration / 1000 + " s, billing the estimate");
+            return null;
+        }
+        return meter.get(4) != null ? Double.parseDouble(meter.get(4).toString()) / 1000 : 0.0;
+    }
+
+    public void discard(Long orderId) {
+        try {
+            redisTemplate.delete(KEY_PREFIX + orderId);
+        } catch (DataAccessException e) {
+            System.err.println("[TripOdometer] Could not drop meter of order " + orderId + ": " + e.getMessage());
+        }
+    }
+}
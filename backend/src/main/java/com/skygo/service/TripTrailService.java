@@ -0,0 +1,214 @@
+package com.skygo.service;
+
+import com.skygo.model.dto.LocationPoint;
+import com.skygo.tracking.TrailCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-trip GPS breadcrumbs.
+ *
+ * Points received while the driver has an active trip are appended to an
+ * in-memory TrailCodec segment for that order. A segment is sealed when it
+ * reaches tracking.trail.segment-bytes, when the trip ends or goes idle, or
+ * once it is max-segment-age-ms old, and written to the private MinIO bucket
+ * as trails/{orderId}/{sealedAtMs}-{seq}.bin. At a point every few seconds a
+ * 20-minute trip is about four objects instead of one DB row per point; the
+ * price is that up to max-segment-age-ms of an open segment is lost if the
+ * node dies. The flush-interval-ms tick seals aged segments and retries
+ * failed uploads.
+ */
+@Service
+public class TripTrailService {
+
+    private static final String PREFIX = "trails/";
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tracking.trail.segment-bytes:4096}")
+    private int segmentBytes;
+
+    @Value("${tracking.trail.max-segment-age-ms:300000}")
+    private long maxSegmentAgeMs;
+
+    // Trails without points for this long are dropped from memory once stored
+    @Value("${tracking.trail.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    private final Map<Long, Trail> trails = new ConcurrentHashMap<>();
+
+    private Counter segmentsWritten;
+    private Counter uploadFailures;
+
+    @PostConstruct
+    public void init() {
+        segmentsWritten = Counter.builder("skygo.tracking.trail.segments")
+                .description("Trail segments written to object storage")
+                .register(meterRegistry);
+        uploadFailures = Counter.builder("skygo.tracking.trail.upload.failures")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Trail trail : trails.values()) {
+            flush(trail, true);
+        }
+    }
+
+    /**
+     * Append an accepted location point to the trail of the driver's active trip.
+     */
+    public void append(ActiveTripRegistry.ActiveTrip trip, LocationPoint point) {
+        Trail trail = trails.computeIfAbsent(trip.orderId(), Trail::new);
+        boolean full;
+        synchronized (trail) {
+            long now = System.currentTimeMillis();
+            if (trail.current.points() == 0) {
+                trail.openedMs = now;
+            }
+            trail.current.append(point.getLat(), point.getLng(), point.getTimestamp());
+            trail.lastAppendMs = now;
+            full = trail.current.size() >= segmentBytes;
+        }
+        if (full) {
+            flush(trail, true);
+        }
+    }
+
+    /**
+     * Trip ended: write what is buffered and forget the trail once stored.
+     */
+    public void finish(Long orderId) {
+        Trail trail = trails.get(orderId);
+        if (trail == null) {
+            return;
+        }
+        synchronized (trail) {
+            trail.finished = true;
+        }
+        flush(trail, true);
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.trail.flush-interval-ms:30000}")
+    public void flushAll() {
+        long now = System.currentTimeMillis();
+        for (Trail trail : trails.values()) {
+            boolean seal;
+            synchronized (trail) {
+                seal = trail.finished || now - trail.openedMs >= maxSegmentAgeMs
+                        || now - trail.lastAppendMs > idleTimeoutMs;
+            }
+            flush(trail, seal);
+        }
+    }
+
+    /**
+     * Stream every stored point of a trip, oldest first, including points not
+     * flushed yet.
+     */
+    public void read(Long orderId, TrailCodec.PointConsumer consumer) throws IOException {
+        for (String objectName : minioService.listPrivateObjects(PREFIX + orderId + "/")) {
+            try (InputStream in = minioService.getPrivateObject(objectName)) {
+                TrailCodec.read(in, consumer);
+            }
+        }
+
+        Trail trail = trails.get(orderId);
+        if (trail == null) {
+            return;
+        }
+        List<byte[]> unflushed = new ArrayList<>();
+        synchronized (trail) {
+            for (Segment segment : trail.pending) {
+                unflushed.add(segment.data);
+            }
+            if (trail.current.points() > 0) {
+                unflushed.add(trail.current.toByteArray());
+            }
+        }
+        for (byte[] data : unflushed) {
+            TrailCodec.read(new ByteArrayInputStream(data), consumer);
+        }
+    }
+
+    // Uploads sealed segments; seal also closes the open one first
+    private void flush(Trail trail, boolean seal) {
+        List<Segment> toUpload;
+        synchronized (trail) {
+            if (seal && trail.current.points() > 0) {
+                trail.pending.add(new Segment(segmentId(trail.nextSeq++), trail.current.toByteArray()));
+                trail.current = new TrailCodec.Writer();
+            }
+            toUpload = new ArrayList<>(trail.pending);
+            trail.pending.clear();
+        }
+
+        List<Segment> failed = new ArrayList<>();
+        for (Segment segment : toUpload) {
+            try {
+                minioService.putPrivateObject(objectName(trail.orderId, segment.seq), segment.data,
+                        "application/octet-stream");
+                segmentsWritten.increment();
+            } catch (Exception e) {
+                uploadFailures.increment();
+                failed.add(segment);
+                System.err.println("[TripTrailService] Segment " + segment.seq + " of order " + trail.orderId
+                        + " not stored, will retry: " + e.getMessage());
+            }
+        }
+
+        synchronized (trail) {
+            trail.pending.addAll(0, failed);
+            boolean idle = System.currentTimeMillis() - trail.lastAppendMs > idleTimeoutMs;
+            if ((trail.finished || idle) && trail.pending.isEmpty() && trail.current.points() == 0) {
+                trails.remove(trail.orderId, trail);
+            }
+        }
+    }
+
+    private static String objectName(Long orderId, String segmentId) {
+        return PREFIX + orderId + "/" + segmentId + ".bin";
+    }
+
+    // Seal time + per-trail counter, zero-padded so listing order is segment order
+    // and a restarted node never overwrites earlier segments
+    private static String segmentId(int seq) {
+        return String.format("%013d-%06d", System.currentTimeMillis(), seq);
+    }
+
+    private record Segment(String seq, byte[] data) {
+    }
+
+    private static class Trail {
+        final Long orderId;
+        TrailCodec.Writer current = new TrailCodec.Writer();
+        final List<Segment> pending = new ArrayList<>();
+        int nextSeq;
+        long lastAppendMs = System.currentTimeMillis();
+        long openedMs = lastAppendMs;
+        boolean finished;
+
+        Trail(Long orderId) {
+            this.orderId = orderId;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.skygo.tracking;
+
+import com.skygo.model.dto.LocationPoint;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary wire format for location points (big-endian).
+ *
+ * message = baseTimestamp int64 (epoch ms) followed by N frames of 24 bytes:
+ *
+ *   driverId   int64
+ *   lat        int32   microdegrees
+ *   lng        int32   microdegrees
+ *   heading    uint16  centidegrees [0, 36000), 0xFFFF = unknown
+ *   speed      uint16  cm/s, 0xFFFF = unknown
+ *   deltaTs    int32   ms relative to baseTimestamp, 0x80000000 = no timestamp
+ *
+ * A point without a timestamp decodes with a null timestamp, so the server
+ * still stamps it with the receive time. Deltas are clamped to about +-24 days.
+ *
+ * Microdegrees are ~11 cm at the equator, well under GPS noise. Encoding goes
+ * through a per-thread reusable buffer; only the returned byte[] is allocated.
+ */
+public final class LocationFrameCodec {
+
+    public static final String CONTENT_TYPE = "application/octet-stream";
+
+    public static final int HEADER_BYTES = 8;
+    public static final int FRAME_BYTES = 24;
+
+    public static final int MAX_FRAMES = 4096;
+
+    private static final int UNKNOWN = 0xFFFF;
+
+    private static final int NO_TIMESTAMP = Integer.MIN_VALUE;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(HEADER_BYTES + MAX_FRAMES * FRAME_BYTES).order(ByteOrder.BIG_ENDIAN));
+
+    private LocationFrameCodec() {
+    }
+
+    public static byte[] encode(LocationPoint point) {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        long base = point.getTimestamp() != null ? point.getTimestamp() : 0L;
+        buffer.putLong(base);
+        putFrame(buffer, point, base);
+        return toArray(buffer);
+    }
+
+    /**
+     * Encode up to 4096 points into one message; the first timestamp is the base.
+     */
+    public static byte[] encode(Collection<LocationPoint> points) {
+        if (points.size() > MAX_FRAMES) {
+            throw new IllegalArgumentException("At most " + MAX_FRAMES + " frames per message");
+        }
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        long base = 0L;
+        for (LocationPoint point : points) {
+            if (point.getTimestamp() != null) {
+                base = point.getTimestamp();
+                break;
+            }
+        }
+        buffer.putLong(base);
+        for (LocationPoint point : points) {
+            putFrame(buffer, point, base);
+        }
+        return toArray(buffer);
+    }
+
+    /**
+     * Write one frame at the buffer position; does not allocate.
+     */
+    public static void putFrame(ByteBuffer buffer, LocationPoint point, long baseTimestamp) {
+        buffer.putLong(point.getDriverId());
+        buffer.putInt((int) Math.round(point.getLat() * 1_000_000));
+        buffer.putInt((int) Math.round(point.getLng() * 1_000_000));
+        buffer.putShort((short) (point.getHeading() != null
+                ? Math.floorMod(Math.round(point.getHeading() * 100), 36000)
+                : UNKNOWN));
+        buffer.putShort((short) (point.getSpeed() != null
+                ? Math.min(Math.max(Math.round(point.getSpeed() * 100), 0), UNKNOWN - 1)
+                : UNKNOWN));
+        buffer.putInt(point.getTimestamp() != null
+                ? (int) Math.min(Math.max(point.getTimestamp() - baseTimestamp, NO_TIMESTAMP + 1), Integer.MAX_VALUE)
+                : NO_TIMESTAMP);
+    }
+
+    public static int frameCount(int messageLength) {
+        if (messageLength < HEADER_BYTES || (messageLength - HEADER_BYTES) % FRAME_BYTES != 0) {
+            throw new IllegalArgumentException("Malformed location message: " + messageLength + " bytes");
+        }
+        return (messageLength - HEADER_BYTES) / FRAME_BYTES;
+    }
+
+    public static List<LocationPoint> decode(byte[] message) {
+        int frames = frameCount(message.length);
+        ByteBuffer buffer = ByteBuffer.wrap(message).order(ByteOrder.BIG_ENDIAN);
+        long base = buffer.getLong();
+        List<LocationPoint> points = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            points.add(getFrame(buffer, base));
+        }
+        return points;
+    }
+
+    /**
+     * Read the frame at the buffer position.
+     */
+    public static LocationPoint getFrame(ByteBuffer buffer, long baseTimestamp) {
+        long driverId = buffer.getLong();
+        double lat = buffer.getInt() / 1_000_000.0;
+        double lng = buffer.getInt() / 1_000_000.0;
+        int heading = buffer.getShort() & 0xFFFF;
+        int speed = buffer.getShort() & 0xFFFF;
+        int delta = buffer.getInt();
+        return new LocationPoint(driverId, lat, lng, delta != NO_TIMESTAMP ? baseTimestamp + delta : null,
+                heading != UNKNOWN ? heading / 100.0 : null,
+                speed != UNKNOWN ? speed / 100.0 : null);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] message = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(message);
+        return message;
+    }
+}
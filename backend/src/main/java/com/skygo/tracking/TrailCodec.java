@@ -0,0 +1,142 @@
+package com.skygo.tracking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Delta + varint encoding of a GPS trail segment.
+ *
+ * segment = version byte, then per point three zigzag varints:
+ * lat and lng in microdegrees and the timestamp in ms. The first point of a
+ * segment is absolute, the following ones are deltas to the previous point, so
+ * every segment decodes on its own. A point 3 s and ~30 m after the previous
+ * one takes 6-7 bytes.
+ */
+public final class TrailCodec {
+
+    public static final int VERSION = 1;
+
+    private TrailCodec() {
+    }
+
+    /**
+     * Appends points to one segment; not thread-safe.
+     */
+    public static class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        private int lastLat;
+        private int lastLng;
+        private long lastTimestamp;
+        private int points;
+
+        public Writer() {
+            out.write(VERSION);
+        }
+
+        public void append(double lat, double lng, long timestamp) {
+            int latE6 = (int) Math.round(lat * 1_000_000);
+            int lngE6 = (int) Math.round(lng * 1_000_000);
+            if (points == 0) {
+                writeVarLong(out, zigzag(latE6));
+                writeVarLong(out, zigzag(lngE6));
+                writeVarLong(out, zigzag(timestamp));
+            } else {
+                writeVarLong(out, zigzag((long) latE6 - lastLat));
+                writeVarLong(out, zigzag((long) lngE6 - lastLng));
+                writeVarLong(out, zigzag(timestamp - lastTimestamp));
+            }
+            lastLat = latE6;
+            lastLng = lngE6;
+            lastTimestamp = timestamp;
+            points++;
+        }
+
+        public int points() {
+            return points;
+        }
+
+        public int size() {
+            return out.size();
+        }
+
+        public byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    public interface PointConsumer {
+        void accept(double lat, double lng, long timestamp) throws IOException;
+    }
+
+    /**
+     * Stream the points of one segment to the consumer.
+     */
+    public static void read(InputStream in, PointConsumer consumer) throws IOException {
+        int version = in.read();
+        if (version == -1) {
+            return;
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported trail segment version " + version);
+        }
+        long lat = 0;
+        long lng = 0;
+        long timestamp = 0;
+        boolean first = true;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                return;
+            }
+            long dLat = unzigzag(readVarLong(in, b));
+            long dLng = unzigzag(readVarLong(in, in.read()));
+            long dTs = unzigzag(readVarLong(in, in.read()));
+            if (first) {
+                lat = dLat;
+                lng = dLng;
+                timestamp = dTs;
+                first = false;
+            } else {
+                lat += dLat;
+                lng += dLng;
+                timestamp += dTs;
+            }
+            consumer.accept(lat / 1_000_000.0, lng / 1_000_000.0, timestamp);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in, int firstByte) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b = firstByte;
+        while (true) {
+            if (b == -1) {
+                throw new EOFException("Truncated trail segment");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            b = in.read();
+        }
+    }
+}
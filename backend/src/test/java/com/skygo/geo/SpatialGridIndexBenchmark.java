@@ -0,0 +1,116 @@
+package com.skygo.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local driver index with a city-sized fleet.
+ *
+ * update / nearest / withinRadius measure single operations; the "mixed" group
+ * runs an unthrottled updater next to three query threads, i.e. queries while the
+ * index takes far more than the 20k updates/s of a 100k-driver fleet reporting
+ * every 5s.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.skygo.geo.SpatialGridIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpatialGridIndexBenchmark {
+
+    // ~65 x 65 km around Jakarta
+    private static final double BASE_LAT = -6.45;
+    private static final double BASE_LNG = 106.55;
+    private static final double SPAN = 0.6;
+
+    @Param({ "100000" })
+    public int drivers;
+
+    @Param({ "0.01" })
+    public double cellSizeDeg;
+
+    private SpatialGridIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new SpatialGridIndex(cellSizeDeg);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int id = 0; id < drivers; id++) {
+            index.update(id, BASE_LAT + random.nextDouble() * SPAN, BASE_LNG + random.nextDouble() * SPAN);
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        moveRandomDriver();
+    }
+
+    @Benchmark
+    public List<SpatialGridIndex.Hit> nearest() {
+        return nearestToRandomPickup();
+    }
+
+    @Benchmark
+    public List<SpatialGridIndex.Hit> withinRadius() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.withinRadius(BASE_LAT + random.nextDouble() * SPAN, BASE_LNG + random.nextDouble() * SPAN,
+                1.0, 20, null);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedUpdate() {
+        moveRandomDriver();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<SpatialGridIndex.Hit> mixedNearest() {
+        return nearestToRandomPickup();
+    }
+
+    // A driver moves up to ~50 m, as between two location reports
+    private void moveRandomDriver() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextInt(drivers);
+        SpatialGridIndex.Position p = index.get(id);
+        index.update(id, p.lat() + (random.nextDouble() - 0.5) * 0.0009,
+                p.lng() + (random.nextDouble() - 0.5) * 0.0009);
+    }
+
+    // Same shape as matching: 10 candidates, 5 km cap
+    private List<SpatialGridIndex.Hit> nearestToRandomPickup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.nearest(BASE_LAT + random.nextDouble() * SPAN, BASE_LNG + random.nextDouble() * SPAN,
+                10, 5.0, null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SpatialGridIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
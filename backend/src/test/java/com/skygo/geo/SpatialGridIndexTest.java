@@ -0,0 +1,155 @@
+package com.skygo.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialGridIndexTest {
+
+    // ~1.1 km cells, as in matching.local-index.cell-size-deg
+    private static final double CELL = 0.01;
+
+    @Test
+    void nearestLooksAcrossCellBorder() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        // Query sits just below a row border; 1 is ~22 m away in the next row, 2 ~1 km away in the same cell
+        index.update(1, -6.1999, 106.8050);
+        index.update(2, -6.2095, 106.8050);
+
+        List<SpatialGridIndex.Hit> hits = index.nearest(-6.2001, 106.8050, 1, 5, null);
+
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).id());
+        assertTrue(hits.get(0).distanceKm() < 0.05);
+    }
+
+    @Test
+    void nearestReturnsKClosestInOrder() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        for (int i = 1; i <= 5; i++) {
+            // 1 is closest, 5 farthest, each in a different cell
+            index.update(i, -6.2005 + i * 0.012, 106.8005);
+        }
+
+        List<SpatialGridIndex.Hit> hits = index.nearest(-6.2005, 106.8005, 3, 10, null);
+
+        assertEquals(List.of(1L, 2L, 3L), ids(hits));
+    }
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(11);
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        List<double[]> points = new ArrayList<>();
+        for (int id = 0; id < 400; id++) {
+            double lat = -6.25 + random.nextDouble() * 0.1;
+            double lng = 106.75 + random.nextDouble() * 0.1;
+            index.update(id, lat, lng);
+            points.add(new double[] {id, lat, lng});
+        }
+
+        for (int query = 0; query < 100; query++) {
+            double lat = -6.25 + random.nextDouble() * 0.1;
+            double lng = 106.75 + random.nextDouble() * 0.1;
+            int k = 1 + random.nextInt(10);
+            double radiusKm = 0.5 + random.nextDouble() * 4;
+
+            List<double[]> expected = new ArrayList<>();
+            for (double[] p : points) {
+                double distance = GeoUtils.haversineKm(lat, lng, p[1], p[2]);
+                if (distance <= radiusKm) {
+                    expected.add(new double[] {p[0], distance});
+                }
+            }
+            expected.sort(Comparator.comparingDouble(e -> e[1]));
+
+            List<SpatialGridIndex.Hit> hits = index.nearest(lat, lng, k, radiusKm, null);
+
+            assertEquals(Math.min(k, expected.size()), hits.size(), "hits for query " + query);
+            for (int i = 0; i < hits.size(); i++) {
+                assertEquals((long) expected.get(i)[0], hits.get(i).id(), "rank " + i + " of query " + query);
+            }
+        }
+    }
+
+    @Test
+    void nearestRespectsRadius() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        // ~0.55 km and ~1.65 km north of the query
+        index.update(1, -6.1955, 106.8005);
+        index.update(2, -6.1855, 106.8005);
+
+        assertEquals(List.of(1L), ids(index.nearest(-6.2005, 106.8005, 5, 1, null)));
+        assertEquals(List.of(1L, 2L), ids(index.nearest(-6.2005, 106.8005, 5, 2, null)));
+        assertTrue(index.nearest(-6.2005, 106.8005, 5, 0.3, null).isEmpty());
+    }
+
+    @Test
+    void nearestAppliesFilter() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        index.update(1, -6.2004, 106.8005);
+        index.update(2, -6.2010, 106.8005);
+
+        assertEquals(List.of(2L), ids(index.nearest(-6.2005, 106.8005, 1, 5, id -> id != 1)));
+    }
+
+    @Test
+    void withinRadiusIsSortedAndLimited() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        index.update(1, -6.1855, 106.8005);
+        index.update(2, -6.1955, 106.8005);
+        index.update(3, -6.2004, 106.8005);
+        index.update(4, -6.3005, 106.8005);
+
+        assertEquals(List.of(3L, 2L, 1L), ids(index.withinRadius(-6.2005, 106.8005, 2, 10, null)));
+        assertEquals(List.of(3L, 2L), ids(index.withinRadius(-6.2005, 106.8005, 2, 2, null)));
+    }
+
+    @Test
+    void movesBetweenCells() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        index.update(1, -6.2005, 106.8005);
+        index.update(1, -6.2505, 106.8505);
+
+        assertEquals(1, index.size());
+        assertTrue(index.nearest(-6.2005, 106.8005, 1, 1, null).isEmpty());
+        assertEquals(List.of(1L), ids(index.nearest(-6.2505, 106.8505, 1, 1, null)));
+        assertEquals(-6.2505, index.get(1).lat(), 1e-9);
+    }
+
+    @Test
+    void removeDropsPoint() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        index.update(1, -6.2005, 106.8005);
+        index.remove(1);
+
+        assertEquals(0, index.size());
+        assertNull(index.get(1));
+        assertTrue(index.nearest(-6.2005, 106.8005, 1, 1, null).isEmpty());
+    }
+
+    @Test
+    void removeOlderThanDropsOnlyStalePoints() {
+        SpatialGridIndex index = new SpatialGridIndex(CELL);
+        index.update(1, -6.2005, 106.8005, 1_000);
+        index.update(2, -6.2010, 106.8005, 5_000);
+
+        assertEquals(1, index.removeOlderThan(2_000));
+        assertEquals(List.of(2L), ids(index.nearest(-6.2005, 106.8005, 5, 1, null)));
+    }
+
+    private static List<Long> ids(List<SpatialGridIndex.Hit> hits) {
+        List<Long> ids = new ArrayList<>();
+        for (SpatialGridIndex.Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,119 @@
+package com.skygo.matching;
+
+import com.skygo.geo.GeoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch assignment vs. the greedy per-order matching it replaces.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.skygo.matching.HungarianAssignmentBenchmark
+ * (prints the total pickup distance comparison, then runs JMH).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HungarianAssignmentBenchmark {
+
+    @Param({ "500" })
+    public int orders;
+
+    @Param({ "2000" })
+    public int drivers;
+
+    private double[][] cost;
+
+    @Setup
+    public void setUp() {
+        cost = randomCity(orders, drivers, 42);
+    }
+
+    @Benchmark
+    public int[] hungarian() {
+        return HungarianAssignment.solve(cost);
+    }
+
+    @Benchmark
+    public int[] greedy() {
+        return greedy(cost);
+    }
+
+    /**
+     * Current behaviour: orders in arrival order each take their closest free driver.
+     */
+    static int[] greedy(double[][] cost) {
+        int[] assignment = new int[cost.length];
+        boolean[] taken = new boolean[cost.length == 0 ? 0 : cost[0].length];
+        for (int i = 0; i < cost.length; i++) {
+            int best = -1;
+            for (int j = 0; j < taken.length; j++) {
+                if (!taken[j] && (best < 0 || cost[i][j] < cost[i][best])) {
+                    best = j;
+                }
+            }
+            assignment[i] = best;
+            if (best >= 0) {
+                taken[best] = true;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Orders and drivers spread over a ~20 x 20 km city, cost = pickup distance in KM.
+     */
+    static double[][] randomCity(int orders, int drivers, long seed) {
+        Random random = new Random(seed);
+        double baseLat = -6.2;
+        double baseLng = 106.8;
+        double span = 0.18;
+
+        double[][] driverPos = new double[drivers][2];
+        for (double[] pos : driverPos) {
+            pos[0] = baseLat + random.nextDouble() * span;
+            pos[1] = baseLng + random.nextDouble() * span;
+        }
+
+        double[][] cost = new double[orders][drivers];
+        for (int i = 0; i < orders; i++) {
+            double lat = baseLat + random.nextDouble() * span;
+            double lng = baseLng + random.nextDouble() * span;
+            for (int j = 0; j < drivers; j++) {
+                cost[i][j] = GeoUtils.haversineKm(lat, lng, driverPos[j][0], driverPos[j][1]);
+            }
+        }
+        return cost;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            double[][] cost = randomCity(500, 2000, seed);
+            double greedyKm = HungarianAssignment.totalCost(cost, greedy(cost));
+            double optimalKm = HungarianAssignment.totalCost(cost, HungarianAssignment.solve(cost));
+            System.out.printf("seed=%d greedy=%.1f km hungarian=%.1f km saved=%.1f%%%n",
+                    seed, greedyKm, optimalKm, 100 * (greedyKm - optimalKm) / greedyKm);
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(HungarianAssignmentBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,144 @@
+package com.skygo.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.skygo.matching.HungarianAssignment.FORBIDDEN;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class HungarianAssignmentTest {
+
+    @Test
+    void solvesSquareMatrix() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2},
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertArrayEquals(new int[] {1, 0, 2}, assignment);
+        assertEquals(5, HungarianAssignment.totalCost(cost, assignment), 1e-9);
+    }
+
+    @Test
+    void beatsGreedyOnContendedDriver() {
+        // Both orders are closest to driver 0; greedy gives it to order 0 and pays 1 + 10
+        double[][] cost = {
+                {1, 2},
+                {2, 10},
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertArrayEquals(new int[] {1, 0}, assignment);
+        assertEquals(4, HungarianAssignment.totalCost(cost, assignment), 1e-9);
+    }
+
+    @Test
+    void leavesSpareColumnsUnused() {
+        double[][] cost = {
+                {10, 2, 8},
+                {3, 9, 4},
+        };
+
+        assertArrayEquals(new int[] {1, 0}, HungarianAssignment.solve(cost));
+    }
+
+    @Test
+    void leavesRowsUnassignedWhenRowsExceedColumns() {
+        double[][] cost = {
+                {5, 9},
+                {1, 2},
+                {8, 3},
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertArrayEquals(new int[] {-1, 0, 1}, assignment);
+        assertEquals(4, HungarianAssignment.totalCost(cost, assignment), 1e-9);
+    }
+
+    @Test
+    void avoidsForbiddenPairs() {
+        double[][] cost = {
+                {1, 2},
+                {1, FORBIDDEN},
+        };
+
+        assertArrayEquals(new int[] {1, 0}, HungarianAssignment.solve(cost));
+    }
+
+    @Test
+    void reportsRowsWithOnlyForbiddenPairsAsUnassigned() {
+        double[][] cost = {
+                {1, FORBIDDEN},
+                {2, FORBIDDEN},
+        };
+
+        assertArrayEquals(new int[] {0, -1}, HungarianAssignment.solve(cost));
+    }
+
+    @Test
+    void handlesEmptyMatrices() {
+        assertEquals(0, HungarianAssignment.solve(new double[0][]).length);
+        assertArrayEquals(new int[] {-1, -1}, HungarianAssignment.solve(new double[2][0]));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomMatrices() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            int rows = 1 + random.nextInt(6);
+            int cols = 1 + random.nextInt(6);
+            double[][] cost = new double[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    cost[i][j] = random.nextInt(5) == 0 ? FORBIDDEN : random.nextInt(100);
+                }
+            }
+
+            int[] assignment = HungarianAssignment.solve(cost);
+
+            boolean[] taken = new boolean[cols];
+            int pairs = 0;
+            for (int column : assignment) {
+                if (column >= 0) {
+                    assertFalse(taken[column], "column " + column + " assigned twice");
+                    taken[column] = true;
+                    pairs++;
+                }
+            }
+            double[] best = bestByBruteForce(cost, 0, new boolean[cols]);
+            assertEquals(best[0], pairs, "assigned pairs in round " + round);
+            assertEquals(best[1], HungarianAssignment.totalCost(cost, assignment), 1e-9, "cost in round " + round);
+        }
+    }
+
+    // {most allowed pairs, lowest cost with that many pairs} over rows from..end
+    private static double[] bestByBruteForce(double[][] cost, int row, boolean[] taken) {
+        if (row == cost.length) {
+            return new double[] {0, 0};
+        }
+        // Leave this row unassigned
+        double[] best = bestByBruteForce(cost, row + 1, taken);
+        for (int j = 0; j < taken.length; j++) {
+            if (taken[j] || cost[row][j] >= FORBIDDEN) {
+                continue;
+            }
+            taken[j] = true;
+            double[] rest = bestByBruteForce(cost, row + 1, taken);
+            taken[j] = false;
+            double pairs = rest[0] + 1;
+            double total = rest[1] + cost[row][j];
+            if (pairs > best[0] || (pairs == best[0] && total < best[1])) {
+                best = new double[] {pairs, total};
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,152 @@
+package com.skygo.order;
+
+import com.skygo.model.Driver;
+import com.skygo.model.Order;
+import com.skygo.model.OrderStatus;
+import com.skygo.model.User;
+import com.skygo.model.dto.AdminOrderRow;
+import com.skygo.model.dto.OrderSummary;
+import com.skygo.repository.OrderRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The paginated order lists must cost one select per page (plus the count
+ * query when Spring Data needs it) and load no entities, however many users
+ * and drivers the page refers to.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OrderListQueryTest {
+
+    private static final int ORDERS = 25;
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+    private static final PageRequest LAST_PAGE = PageRequest.of(2, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+    private User user;
+    private Driver driver;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Rider");
+        user.setEmail("rider@skygo.test");
+        user.setPhone("0800000001");
+        entityManager.persist(user);
+
+        driver = new Driver();
+        driver.setName("Driver");
+        driver.setEmail("driver@skygo.test");
+        driver.setVehicleType("MOTOR");
+        driver.setVehiclePlate("B 1234 XY");
+        driver.setKtpUrl("ktp/driver.jpg");
+        driver.setSimUrl("sim/driver.jpg");
+        entityManager.persist(driver);
+
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            // Every other order is still waiting for a driver
+            if (i % 2 == 0) {
+                order.setDriver(driver);
+                order.setStatus(OrderStatus.COMPLETED);
+            } else {
+                order.setStatus(OrderStatus.REQUESTED);
+            }
+            order.setPickupAddress("Pickup " + i);
+            order.setDestinationAddress("Destination " + i);
+            order.setServiceType("MOTOR");
+            order.setPaymentMethod("CASH");
+            order.setDistanceKm(i);
+            order.setEstimatedPrice(10000 + i);
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void userHistoryPageIsOneSelectPlusCount() {
+        Page<OrderSummary> page = orderRepository.findSummariesByUserId(user.getId(), FIRST_PAGE);
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(ORDERS, page.getTotalElements());
+        assertStatements(2);
+
+        OrderSummary row = page.getContent().get(0);
+        assertEquals(user.getId(), row.getUser().getId());
+        assertEquals("Rider", row.getUser().getName());
+    }
+
+    @Test
+    void lastPageSkipsTheCount() {
+        Page<OrderSummary> page = orderRepository.findSummariesByUserId(user.getId(), LAST_PAGE);
+
+        assertEquals(5, page.getContent().size());
+        assertEquals(ORDERS, page.getTotalElements());
+        assertStatements(1);
+    }
+
+    @Test
+    void driverHistoryPageIsOneSelectPlusCount() {
+        Page<OrderSummary> page = orderRepository.findSummariesByDriverId(driver.getId(), FIRST_PAGE);
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(13, page.getTotalElements());
+        assertStatements(2);
+
+        OrderSummary row = page.getContent().get(0);
+        assertNotNull(row.getDriver());
+        assertEquals("B 1234 XY", row.getDriver().getVehiclePlate());
+    }
+
+    @Test
+    void availablePageHasNoDriver() {
+        Page<OrderSummary> page = orderRepository.findSummariesByStatus(OrderStatus.REQUESTED, FIRST_PAGE);
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(12, page.getTotalElements());
+        assertStatements(2);
+        page.getContent().forEach(row -> assertNull(row.getDriver()));
+    }
+
+    @Test
+    void adminPageIsOneSelectPlusCount() {
+        Page<AdminOrderRow> page = orderRepository.findAdminRows(
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(ORDERS, page.getTotalElements());
+        assertStatements(2);
+    }
+
+    private void assertStatements(long expected) {
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements per page");
+        assertEquals(0, statistics.getEntityLoadCount(), "entities loaded");
+        assertEquals(0, statistics.getEntityFetchCount(), "entities fetched");
+    }
+}
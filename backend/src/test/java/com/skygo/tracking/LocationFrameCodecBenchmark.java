@@ -0,0 +1,134 @@
+package com.skygo.tracking;
+
+import com.skygo.model.dto.LocationPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary location frames vs. the "driverId:lat,lng" text messages.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.skygo.tracking.LocationFrameCodecBenchmark
+ * (prints the wire size of both formats, then runs JMH; add -prof gc to the
+ * options for allocation rates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocationFrameCodecBenchmark {
+
+    private LocationPoint point;
+    private List<LocationPoint> batch;
+    private byte[] textMessage;
+    private byte[] binaryMessage;
+    private byte[] binaryBatch;
+
+    @Setup
+    public void setUp() {
+        point = randomPoints(1, 7).get(0);
+        batch = randomPoints(100, 42);
+        textMessage = encodeText(point);
+        binaryMessage = LocationFrameCodec.encode(point);
+        binaryBatch = LocationFrameCodec.encode(batch);
+    }
+
+    @Benchmark
+    public byte[] encodeText() {
+        return encodeText(point);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return LocationFrameCodec.encode(point);
+    }
+
+    @Benchmark
+    public LocationPoint decodeText() {
+        return decodeText(textMessage);
+    }
+
+    @Benchmark
+    public List<LocationPoint> decodeBinary() {
+        return LocationFrameCodec.decode(binaryMessage);
+    }
+
+    @Benchmark
+    public int encodeTextBatch() {
+        int bytes = 0;
+        for (LocationPoint p : batch) {
+            bytes += encodeText(p).length;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryBatch() {
+        return LocationFrameCodec.encode(batch);
+    }
+
+    @Benchmark
+    public List<LocationPoint> decodeBinaryBatch() {
+        return LocationFrameCodec.decode(binaryBatch);
+    }
+
+    // Current format, as built by LocationBroadcaster
+    static byte[] encodeText(LocationPoint p) {
+        return (p.getDriverId() + ":" + p.getLat() + "," + p.getLng()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static LocationPoint decodeText(byte[] message) {
+        String text = new String(message, StandardCharsets.UTF_8);
+        int colon = text.indexOf(':');
+        int comma = text.indexOf(',', colon);
+        return new LocationPoint(Long.parseLong(text.substring(0, colon)),
+                Double.parseDouble(text.substring(colon + 1, comma)),
+                Double.parseDouble(text.substring(comma + 1)));
+    }
+
+    static List<LocationPoint> randomPoints(int count, long seed) {
+        Random random = new Random(seed);
+        long now = System.currentTimeMillis();
+        List<LocationPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new LocationPoint(10_000L + random.nextInt(100_000),
+                    -6.45 + random.nextDouble() * 0.6, 106.55 + random.nextDouble() * 0.6,
+                    now + i * 250L, random.nextDouble() * 360, random.nextDouble() * 20));
+        }
+        return points;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<LocationPoint> points = randomPoints(1000, 1);
+        long textBytes = 0;
+        for (LocationPoint p : points) {
+            textBytes += encodeText(p).length;
+        }
+        System.out.printf("text: %.1f bytes/point (lat/lng only), binary: %d bytes/point single, %.1f batched%n",
+                textBytes / (double) points.size(),
+                LocationFrameCodec.encode(points.get(0)).length,
+                LocationFrameCodec.encode(points).length / (double) points.size());
+
+        new Runner(new OptionsBuilder()
+                .include(LocationFrameCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
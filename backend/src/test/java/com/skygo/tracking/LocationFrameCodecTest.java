@@ -0,0 +1,73 @@
+package com.skygo.tracking;
+
+import com.skygo.model.dto.LocationPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocationFrameCodecTest {
+
+    private static final long T0 = 1_760_000_000_000L;
+
+    @Test
+    void roundTripsOnePoint() {
+        LocationPoint point = new LocationPoint(42L, -6.208763, 106.845599, T0, 271.5, 13.25);
+
+        List<LocationPoint> decoded = LocationFrameCodec.decode(LocationFrameCodec.encode(point));
+
+        assertEquals(1, decoded.size());
+        LocationPoint result = decoded.get(0);
+        assertEquals(42L, result.getDriverId());
+        assertEquals(-6.208763, result.getLat(), 1e-6);
+        assertEquals(106.845599, result.getLng(), 1e-6);
+        assertEquals(T0, result.getTimestamp());
+        assertEquals(271.5, result.getHeading(), 0.01);
+        assertEquals(13.25, result.getSpeed(), 0.01);
+    }
+
+    @Test
+    void roundTripsBatchWithRelativeTimestamps() {
+        List<LocationPoint> points = List.of(
+                new LocationPoint(1L, -6.2, 106.8, T0, null, null),
+                new LocationPoint(2L, -6.3, 106.9, T0 + 5_000, 90.0, 0.0),
+                new LocationPoint(3L, -6.4, 107.0, T0 - 1_000, 359.99, 30.0));
+
+        List<LocationPoint> decoded = LocationFrameCodec.decode(LocationFrameCodec.encode(points));
+
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(points.get(i).getDriverId(), decoded.get(i).getDriverId());
+            assertEquals(points.get(i).getTimestamp(), decoded.get(i).getTimestamp());
+        }
+        assertNull(decoded.get(0).getHeading());
+        assertNull(decoded.get(0).getSpeed());
+    }
+
+    @Test
+    void missingTimestampDecodesAsNull() {
+        LocationPoint single = new LocationPoint(7L, -6.2, 106.8);
+        assertNull(LocationFrameCodec.decode(LocationFrameCodec.encode(single)).get(0).getTimestamp());
+
+        List<LocationPoint> decoded = LocationFrameCodec.decode(LocationFrameCodec.encode(List.of(
+                new LocationPoint(7L, -6.2, 106.8),
+                new LocationPoint(8L, -6.3, 106.9, T0, null, null),
+                new LocationPoint(9L, -6.4, 107.0))));
+
+        assertNull(decoded.get(0).getTimestamp());
+        assertEquals(T0, decoded.get(1).getTimestamp());
+        assertNull(decoded.get(2).getTimestamp());
+    }
+
+    @Test
+    void rejectsTruncatedMessage() {
+        byte[] message = LocationFrameCodec.encode(new LocationPoint(7L, -6.2, 106.8));
+        byte[] truncated = Arrays.copyOf(message, message.length - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.decode(truncated));
+    }
+}
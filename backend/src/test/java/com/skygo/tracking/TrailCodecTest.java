@@ -0,0 +1,76 @@
+package com.skygo.tracking;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrailCodecTest {
+
+    private static final long T0 = 1_760_000_000_000L;
+
+    @Test
+    void roundTripsSegment() throws IOException {
+        double[][] points = {
+                {-6.208763, 106.845599, T0},
+                {-6.208500, 106.845900, T0 + 3_000},
+                {-6.209100, 106.845100, T0 + 6_000},
+                // Out-of-order and far-away points still decode exactly
+                {-6.900000, 107.600000, T0 + 1_000},
+        };
+        TrailCodec.Writer writer = new TrailCodec.Writer();
+        for (double[] point : points) {
+            writer.append(point[0], point[1], (long) point[2]);
+        }
+
+        List<double[]> decoded = read(writer.toByteArray());
+
+        assertEquals(points.length, writer.points());
+        assertEquals(points.length, decoded.size());
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(points[i][0], decoded.get(i)[0], 1e-6);
+            assertEquals(points[i][1], decoded.get(i)[1], 1e-6);
+            assertEquals((long) points[i][2], (long) decoded.get(i)[2]);
+        }
+    }
+
+    @Test
+    void nearbyPointsAreSmall() {
+        TrailCodec.Writer writer = new TrailCodec.Writer();
+        writer.append(-6.208763, 106.845599, T0);
+        int first = writer.size();
+        writer.append(-6.208500, 106.845900, T0 + 3_000);
+
+        assertTrue(writer.size() - first <= 7, "delta point took " + (writer.size() - first) + " bytes");
+    }
+
+    @Test
+    void emptySegmentHasNoPoints() throws IOException {
+        assertEquals(0, read(new TrailCodec.Writer().toByteArray()).size());
+    }
+
+    @Test
+    void rejectsTruncatedSegment() {
+        TrailCodec.Writer writer = new TrailCodec.Writer();
+        writer.append(-6.208763, 106.845599, T0);
+        byte[] data = writer.toByteArray();
+        byte[] truncated = Arrays.copyOf(data, data.length - 1);
+
+        assertThrows(EOFException.class, () -> read(truncated));
+    }
+
+    private static List<double[]> read(byte[] data) throws IOException {
+        List<double[]> points = new ArrayList<>();
+        TrailCodec.read(new ByteArrayInputStream(data),
+                (lat, lng, timestamp) -> points.add(new double[] {lat, lng, timestamp}));
+        return points;
+    }
+}